@@ -161,3 +161,106 @@ SELECT
 FROM servicios_materiales sm
 JOIN servicios s ON sm.servicio_id = s.id
 JOIN inventario_refacciones ir ON sm.material_id = ir.id;
+
+-- Índices para el listado paginado de servicios (migration_indices_servicios.sql)
+CREATE INDEX idx_servicios_fecha_ingreso ON servicios(fecha_ingreso);
+CREATE INDEX idx_servicios_estado_ingreso ON servicios(estado, fecha_ingreso);
+CREATE INDEX idx_servicios_tecnico_ingreso ON servicios(tecnico_id, fecha_ingreso);
+
+-- Índice para finalizados y estadísticas de ingresos (migration_indice_finalizados.sql)
+CREATE INDEX idx_servicios_estado_finalizacion ON servicios(estado, fecha_finalizacion);
+
+-- Total de pedidos por cliente y paginación de /api/clientes (migration_total_pedidos.sql)
+ALTER TABLE clientes
+ADD COLUMN total_pedidos INT NOT NULL DEFAULT 0;
+
+CREATE INDEX idx_clientes_listado ON clientes(deleted_at, nombre);
+CREATE INDEX idx_equipos_cliente ON equipos(cliente_id);
+CREATE INDEX idx_servicios_equipo ON servicios(equipo_id);
+
+DELIMITER //
+
+CREATE TRIGGER trg_servicios_total_insert AFTER INSERT ON servicios
+FOR EACH ROW
+BEGIN
+    UPDATE clientes c
+    JOIN equipos e ON e.cliente_id = c.id
+    SET c.total_pedidos = c.total_pedidos + 1
+    WHERE e.id = NEW.equipo_id;
+END//
+
+CREATE TRIGGER trg_servicios_total_delete AFTER DELETE ON servicios
+FOR EACH ROW
+BEGIN
+    UPDATE clientes c
+    JOIN equipos e ON e.cliente_id = c.id
+    SET c.total_pedidos = c.total_pedidos - 1
+    WHERE e.id = OLD.equipo_id;
+END//
+
+CREATE TRIGGER trg_servicios_total_update AFTER UPDATE ON servicios
+FOR EACH ROW
+BEGIN
+    IF NEW.equipo_id <> OLD.equipo_id THEN
+        UPDATE clientes c
+        JOIN equipos e ON e.cliente_id = c.id
+        SET c.total_pedidos = c.total_pedidos - 1
+        WHERE e.id = OLD.equipo_id;
+
+        UPDATE clientes c
+        JOIN equipos e ON e.cliente_id = c.id
+        SET c.total_pedidos = c.total_pedidos + 1
+        WHERE e.id = NEW.equipo_id;
+    END IF;
+END//
+
+CREATE TRIGGER trg_equipos_total_delete BEFORE DELETE ON equipos
+FOR EACH ROW
+BEGIN
+    UPDATE clientes
+    SET total_pedidos = total_pedidos - (SELECT COUNT(*) FROM servicios WHERE equipo_id = OLD.id)
+    WHERE id = OLD.cliente_id;
+END//
+
+CREATE TRIGGER trg_equipos_total_update AFTER UPDATE ON equipos
+FOR EACH ROW
+BEGIN
+    IF NOT (NEW.cliente_id <=> OLD.cliente_id) THEN
+        UPDATE clientes
+        SET total_pedidos = total_pedidos - (SELECT COUNT(*) FROM servicios WHERE equipo_id = OLD.id)
+        WHERE id = OLD.cliente_id;
+
+        UPDATE clientes
+        SET total_pedidos = total_pedidos + (SELECT COUNT(*) FROM servicios WHERE equipo_id = NEW.id)
+        WHERE id = NEW.cliente_id;
+    END IF;
+END//
+
+DELIMITER ;
+
+-- Cola de emails pendientes (migration_email_outbox.sql, migration_email_outbox_plantillas.sql)
+CREATE TABLE IF NOT EXISTS email_outbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    destinatario VARCHAR(255) NOT NULL,
+    plantilla VARCHAR(40) NOT NULL,
+    user_id VARCHAR(36) NOT NULL,
+    estado VARCHAR(20) NOT NULL DEFAULT 'PENDIENTE',
+    intentos INT NOT NULL DEFAULT 0,
+    proximo_intento DATETIME NOT NULL,
+    reclamado_por CHAR(36),
+    reclamado_en DATETIME,
+    ultimo_error VARCHAR(500),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_email_outbox_pendientes (estado, proximo_intento)
+);
+
+-- Tokens de recuperación de contraseña (migration_reset_tokens.sql, migration_reset_tokens_varios.sql)
+CREATE TABLE IF NOT EXISTS password_reset_tokens (
+    token_hash CHAR(43) PRIMARY KEY,
+    user_id VARCHAR(36) NOT NULL,
+    expira_en DATETIME NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_reset_tokens_usuario (user_id),
+    INDEX idx_reset_tokens_expira (expira_en),
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
@@ -0,0 +1,21 @@
+-- ===================================
+-- MIGRACIÓN: Cola persistente de emails
+-- ===================================
+-- Propósito: registro y recuperación de contraseña ya no envían el correo durante
+--            la petición; lo encolan aquí y EmailDispatcher lo envía en lotes.
+--            La aplicación también crea la tabla al iniciar si no existe.
+
+USE electronica_domestica;
+
+CREATE TABLE IF NOT EXISTS email_outbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    destinatario VARCHAR(255) NOT NULL,
+    asunto VARCHAR(255) NOT NULL,
+    cuerpo MEDIUMTEXT,
+    estado VARCHAR(20) NOT NULL DEFAULT 'PENDIENTE',
+    intentos INT NOT NULL DEFAULT 0,
+    proximo_intento DATETIME NOT NULL,
+    ultimo_error VARCHAR(500),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_email_outbox_pendientes (estado, proximo_intento)
+);
@@ -0,0 +1,23 @@
+-- ===================================
+-- MIGRACIÓN: email_outbox sin contenido sensible y con reclamo de lotes
+-- ===================================
+-- Propósito: la cola ya no guarda el HTML del correo (el de bienvenida incluía la
+--            contraseña en claro y el de recuperación el token). Cada fila guarda
+--            la plantilla y el usuario; el correo se arma al enviarlo.
+--            reclamado_por / reclamado_en permiten que cada instancia reclame su
+--            lote (estado ENVIANDO) para que dos instancias no envíen el mismo correo.
+--
+-- Los correos que sigan en la cola se descartan porque su cuerpo puede contener
+-- credenciales: los usuarios afectados pueden pedir recuperación de contraseña.
+
+USE electronica_domestica;
+
+DELETE FROM email_outbox;
+
+ALTER TABLE email_outbox
+    DROP COLUMN asunto,
+    DROP COLUMN cuerpo,
+    ADD COLUMN plantilla VARCHAR(40) NOT NULL AFTER destinatario,
+    ADD COLUMN user_id VARCHAR(36) NOT NULL AFTER plantilla,
+    ADD COLUMN reclamado_por CHAR(36) AFTER proximo_intento,
+    ADD COLUMN reclamado_en DATETIME AFTER reclamado_por;
@@ -0,0 +1,11 @@
+-- ===================================
+-- MIGRACIÓN: Índice para servicios finalizados / entregados
+-- ===================================
+-- Propósito: /api/finalizado filtra por estado y fecha_finalizacion en SQL
+--            en lugar de cargar todos los servicios. El mismo índice sirve a las
+--            consultas de ingresos de /api/stats (estado = 'ENTREGADO' AND
+--            fecha_finalizacion >= ?).
+
+USE electronica_domestica;
+
+CREATE INDEX idx_servicios_estado_finalizacion ON servicios(estado, fecha_finalizacion);
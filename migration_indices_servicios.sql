@@ -0,0 +1,13 @@
+-- ===================================
+-- MIGRACIÓN: Índices para el listado paginado de servicios
+-- ===================================
+-- Propósito: /api/servicios y /api/tarjetas paginan por cursor sobre
+--            (fecha_ingreso, id). Estos índices permiten leer cada página
+--            directamente en orden, con o sin filtro de estado o técnico.
+--            (InnoDB agrega la PK id al final de cada índice secundario.)
+
+USE electronica_domestica;
+
+CREATE INDEX idx_servicios_fecha_ingreso ON servicios(fecha_ingreso);
+CREATE INDEX idx_servicios_estado_ingreso ON servicios(estado, fecha_ingreso);
+CREATE INDEX idx_servicios_tecnico_ingreso ON servicios(tecnico_id, fecha_ingreso);
@@ -0,0 +1,21 @@
+-- ===================================
+-- MIGRACIÓN: Tokens de recuperación de contraseña
+-- ===================================
+-- Propósito: los tokens de recuperación viven en su propia tabla, fuera de users.
+--            Se guarda el SHA-256 del token (base64url) como llave primaria, así
+--            que la búsqueda es por índice y el token original nunca se almacena.
+--            Un token vigente por usuario; LimpiezaTokensReset borra los vencidos
+--            por lotes usando idx_reset_tokens_expira.
+--            La aplicación también crea la tabla al iniciar si no existe.
+
+USE electronica_domestica;
+
+CREATE TABLE IF NOT EXISTS password_reset_tokens (
+    token_hash CHAR(43) PRIMARY KEY,
+    user_id VARCHAR(36) NOT NULL,
+    expira_en DATETIME NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_reset_tokens_usuario (user_id),
+    INDEX idx_reset_tokens_expira (expira_en),
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
@@ -0,0 +1,18 @@
+-- ===================================
+-- MIGRACIÓN: varios tokens de recuperación vigentes por usuario
+-- ===================================
+-- Propósito: el token se genera al armar el correo, así que cada reintento del
+--            envío (o un correo de bienvenida) creaba uno nuevo y el REPLACE
+--            invalidaba el enlace que el usuario ya había recibido. Ahora cada
+--            correo deja su propio token; al restablecer la contraseña se borran
+--            todos los del usuario.
+--            El índice no único se crea antes de quitar el único porque la llave
+--            foránea de user_id necesita uno.
+
+USE electronica_domestica;
+
+ALTER TABLE password_reset_tokens
+    ADD INDEX idx_reset_tokens_usuario (user_id);
+
+ALTER TABLE password_reset_tokens
+    DROP INDEX uk_reset_tokens_usuario;
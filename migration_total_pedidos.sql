@@ -0,0 +1,101 @@
+-- ===================================
+-- MIGRACIÓN: Total de pedidos por cliente
+-- ===================================
+-- Propósito: /api/clientes pagina por cursor sobre (nombre, id) y lee el total de
+--            pedidos de la columna clientes.total_pedidos en lugar de agregar
+--            equipos y servicios en cada petición. Los triggers mantienen la
+--            columna al insertar, borrar o mover servicios y equipos.
+--
+-- Nota: los borrados en cascada de una FK no disparan triggers en MySQL; por eso
+--       el borrado de un equipo descuenta sus servicios antes de que se borren.
+--
+-- Orden: primero los triggers y después la carga inicial, con las tablas bloqueadas.
+--        Así ningún servicio insertado, borrado o movido mientras corre la migración
+--        queda fuera del contador: o lo cuenta el trigger y la carga lo recalcula, o
+--        espera al UNLOCK y lo cuenta el trigger.
+
+USE electronica_domestica;
+
+ALTER TABLE clientes
+ADD COLUMN total_pedidos INT NOT NULL DEFAULT 0;
+
+-- Listado paginado: solo activos, ordenados por nombre (InnoDB agrega la PK id al final)
+CREATE INDEX idx_clientes_listado ON clientes(deleted_at, nombre);
+
+-- Índices de las FK con nombre propio; MySQL descarta el que creó automáticamente
+-- para la FK si ya existía
+CREATE INDEX idx_equipos_cliente ON equipos(cliente_id);
+CREATE INDEX idx_servicios_equipo ON servicios(equipo_id);
+
+DELIMITER //
+
+CREATE TRIGGER trg_servicios_total_insert AFTER INSERT ON servicios
+FOR EACH ROW
+BEGIN
+    UPDATE clientes c
+    JOIN equipos e ON e.cliente_id = c.id
+    SET c.total_pedidos = c.total_pedidos + 1
+    WHERE e.id = NEW.equipo_id;
+END//
+
+CREATE TRIGGER trg_servicios_total_delete AFTER DELETE ON servicios
+FOR EACH ROW
+BEGIN
+    UPDATE clientes c
+    JOIN equipos e ON e.cliente_id = c.id
+    SET c.total_pedidos = c.total_pedidos - 1
+    WHERE e.id = OLD.equipo_id;
+END//
+
+CREATE TRIGGER trg_servicios_total_update AFTER UPDATE ON servicios
+FOR EACH ROW
+BEGIN
+    IF NEW.equipo_id <> OLD.equipo_id THEN
+        UPDATE clientes c
+        JOIN equipos e ON e.cliente_id = c.id
+        SET c.total_pedidos = c.total_pedidos - 1
+        WHERE e.id = OLD.equipo_id;
+
+        UPDATE clientes c
+        JOIN equipos e ON e.cliente_id = c.id
+        SET c.total_pedidos = c.total_pedidos + 1
+        WHERE e.id = NEW.equipo_id;
+    END IF;
+END//
+
+CREATE TRIGGER trg_equipos_total_delete BEFORE DELETE ON equipos
+FOR EACH ROW
+BEGIN
+    UPDATE clientes
+    SET total_pedidos = total_pedidos - (SELECT COUNT(*) FROM servicios WHERE equipo_id = OLD.id)
+    WHERE id = OLD.cliente_id;
+END//
+
+CREATE TRIGGER trg_equipos_total_update AFTER UPDATE ON equipos
+FOR EACH ROW
+BEGIN
+    IF NOT (NEW.cliente_id <=> OLD.cliente_id) THEN
+        UPDATE clientes
+        SET total_pedidos = total_pedidos - (SELECT COUNT(*) FROM servicios WHERE equipo_id = OLD.id)
+        WHERE id = OLD.cliente_id;
+
+        UPDATE clientes
+        SET total_pedidos = total_pedidos + (SELECT COUNT(*) FROM servicios WHERE equipo_id = NEW.id)
+        WHERE id = NEW.cliente_id;
+    END IF;
+END//
+
+DELIMITER ;
+
+-- Carga inicial del contador, con los triggers ya activos
+LOCK TABLES clientes c WRITE, equipos e READ, servicios s READ;
+
+UPDATE clientes c
+SET c.total_pedidos = (
+    SELECT COUNT(*)
+    FROM equipos e
+    JOIN servicios s ON s.equipo_id = e.id
+    WHERE e.cliente_id = c.id
+);
+
+UNLOCK TABLES;
@@ -0,0 +1,167 @@
+package com.electronica.bench;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Base de datos H2 en memoria (modo MySQL) con datos de prueba para los benchmarks.
+ * Usa el mismo pool (Hikari) que la aplicación para que el costo de pedir
+ * conexiones se parezca al real.
+ */
+public class BaseDeDatosBench implements AutoCloseable {
+
+    private static final String[] ESTADOS = { "PENDIENTE", "EN_PROCESO", "ESPERA_REFACCION", "FINALIZADO",
+            "ENTREGADO" };
+
+    private final HikariDataSource dataSource;
+    private final List<String> servicioIds = new ArrayList<>();
+
+    /**
+     * @param clientes            clientes a generar (un equipo por cliente)
+     * @param serviciosPorCliente servicios por equipo
+     */
+    public BaseDeDatosBench(int clientes, int serviciosPorCliente) {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:bench-" + UUID.randomUUID()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        config.setUsername("sa");
+        config.setPassword("");
+        config.setMaximumPoolSize(10);
+        this.dataSource = new HikariDataSource(config);
+
+        try (Connection conn = dataSource.getConnection()) {
+            crearEsquema(conn);
+            poblar(conn, clientes, serviciosPorCliente);
+        } catch (SQLException | IOException e) {
+            throw new RuntimeException("Error al preparar la base de datos de benchmarks", e);
+        }
+    }
+
+    public HikariDataSource getDataSource() {
+        return dataSource;
+    }
+
+    public List<String> getServicioIds() {
+        return servicioIds;
+    }
+
+    private void crearEsquema(Connection conn) throws SQLException, IOException {
+        String script;
+        try (InputStream in = BaseDeDatosBench.class.getResourceAsStream("/schema-h2.sql")) {
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        try (Statement stmt = conn.createStatement()) {
+            for (String sentencia : script.split(";")) {
+                String sql = sentencia.lines()
+                        .filter(l -> !l.trim().startsWith("--"))
+                        .reduce("", (a, b) -> a + "\n" + b)
+                        .trim();
+                if (!sql.isEmpty()) {
+                    stmt.execute(sql);
+                }
+            }
+        }
+    }
+
+    private void poblar(Connection conn, int clientes, int serviciosPorCliente) throws SQLException {
+        Random random = new Random(42);
+        conn.setAutoCommit(false);
+
+        List<String> tecnicos = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO users (id, nombre_completo, correo_electronico, contrasena, tipo) VALUES (?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < 5; i++) {
+                String id = UUID.randomUUID().toString();
+                tecnicos.add(id);
+                stmt.setString(1, id);
+                stmt.setString(2, "Técnico " + i);
+                stmt.setString(3, "tecnico" + i + "@bench.local");
+                stmt.setString(4, "$2a$10$hash");
+                stmt.setString(5, "tecnico");
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO marcas (nombre_marca) VALUES (?)")) {
+            for (String marca : new String[] { "Whirlpool", "Samsung", "LG", "Mabe", "Daewoo" }) {
+                stmt.setString(1, marca);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+
+        LocalDateTime ahora = LocalDateTime.now();
+        try (PreparedStatement cliente = conn.prepareStatement(
+                "INSERT INTO clientes (id, nombre, apellidos, numero_celular) VALUES (?, ?, ?, ?)");
+                PreparedStatement equipo = conn.prepareStatement(
+                        "INSERT INTO equipos (id, cliente_id, marca_id, modelo) VALUES (?, ?, ?, ?)");
+                PreparedStatement servicio = conn.prepareStatement(
+                        "INSERT INTO servicios (id, equipo_id, tecnico_id, problema_reportado, fecha_ingreso, estado, " +
+                                "fecha_finalizacion, costo_reparacion) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+
+            for (int i = 0; i < clientes; i++) {
+                String clienteId = UUID.randomUUID().toString();
+                cliente.setString(1, clienteId);
+                cliente.setString(2, "Cliente " + i);
+                cliente.setString(3, "Apellido " + (i % 100));
+                cliente.setString(4, String.format("55%08d", i));
+                cliente.addBatch();
+
+                String equipoId = UUID.randomUUID().toString();
+                equipo.setString(1, equipoId);
+                equipo.setString(2, clienteId);
+                equipo.setInt(3, 1 + random.nextInt(5));
+                equipo.setString(4, "Modelo " + random.nextInt(50));
+                equipo.addBatch();
+
+                for (int j = 0; j < serviciosPorCliente; j++) {
+                    String servicioId = UUID.randomUUID().toString();
+                    servicioIds.add(servicioId);
+                    LocalDateTime ingreso = ahora.minusHours(random.nextInt(24 * 365));
+                    String estado = ESTADOS[random.nextInt(ESTADOS.length)];
+                    boolean finalizado = estado.equals("FINALIZADO") || estado.equals("ENTREGADO");
+
+                    servicio.setString(1, servicioId);
+                    servicio.setString(2, equipoId);
+                    servicio.setString(3, tecnicos.get(random.nextInt(tecnicos.size())));
+                    servicio.setString(4, "No enciende la tarjeta " + j);
+                    servicio.setTimestamp(5, Timestamp.valueOf(ingreso));
+                    servicio.setString(6, estado);
+                    servicio.setTimestamp(7, finalizado ? Timestamp.valueOf(ingreso.plusDays(3)) : null);
+                    servicio.setBigDecimal(8, BigDecimal.valueOf(200 + random.nextInt(2000)));
+                    servicio.addBatch();
+                }
+            }
+            cliente.executeBatch();
+            equipo.executeBatch();
+            servicio.executeBatch();
+        }
+
+        // En MySQL lo mantienen los triggers (migration_total_pedidos.sql)
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE clientes c SET total_pedidos = (SELECT COUNT(*) FROM equipos e " +
+                    "JOIN servicios s ON s.equipo_id = e.id WHERE e.cliente_id = c.id)");
+        }
+
+        conn.commit();
+        conn.setAutoCommit(true);
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+    }
+}
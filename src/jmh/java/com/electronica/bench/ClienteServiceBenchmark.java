@@ -0,0 +1,59 @@
+package com.electronica.bench;
+
+import com.electronica.cliente.models.ClienteFiltro;
+import com.electronica.cliente.models.ClienteResumen;
+import com.electronica.cliente.repository.ClienteRepository;
+import com.electronica.cliente.services.ClienteIndice;
+import com.electronica.cliente.services.ClienteService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+
+/**
+ * Primera página del listado de clientes (lo que responde GET /api/clientes)
+ * y búsqueda en el índice en memoria (GET /api/clientes/buscar).
+ */
+@State(Scope.Benchmark)
+public class ClienteServiceBenchmark {
+
+    @Param({ "1000" })
+    public int clientes;
+
+    private BaseDeDatosBench db;
+    private ClienteService service;
+    private ClienteIndice indice;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        db = new BaseDeDatosBench(clientes, 5);
+        ClienteRepository repository = new ClienteRepository(db.getDataSource());
+        indice = new ClienteIndice(repository);
+        indice.reconstruir();
+        service = new ClienteService(repository, indice);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        db.close();
+    }
+
+    @Benchmark
+    public List<ClienteResumen> getAll() {
+        return service.listar(new ClienteFiltro());
+    }
+
+    @Benchmark
+    public List<ClienteIndice.Entrada> buscarPrefijo() {
+        return indice.buscar("clie apellido 4", 10);
+    }
+
+    @Benchmark
+    public List<ClienteIndice.Entrada> buscarConError() {
+        return indice.buscar("apelido", 10);
+    }
+
+    @Benchmark
+    public List<ClienteIndice.Entrada> buscarTelefono() {
+        return indice.buscar("0042", 10);
+    }
+}
@@ -0,0 +1,29 @@
+package com.electronica.bench;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.electronica.config.JwtConfig;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Verificación de la firma HMAC de un token (JWT_SECRET llega como -D desde build.gradle).
+ */
+@State(Scope.Benchmark)
+public class JwtConfigBenchmark {
+
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        token = JwtConfig.generateToken("00000000-0000-0000-0000-000000000001", "tecnico@bench.local");
+    }
+
+    @Benchmark
+    public DecodedJWT verifyToken() {
+        return JwtConfig.verifyToken(token);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return JwtConfig.generateToken("00000000-0000-0000-0000-000000000001", "tecnico@bench.local");
+    }
+}
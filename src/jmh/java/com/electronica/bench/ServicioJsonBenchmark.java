@@ -0,0 +1,68 @@
+package com.electronica.bench;
+
+import com.electronica.servicio.models.Servicio;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.javalin.json.JavalinJackson;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Serialización de servicios con el mismo ObjectMapper que usa Javalin en ctx.json().
+ */
+@State(Scope.Benchmark)
+public class ServicioJsonBenchmark {
+
+    @Param({ "100" })
+    public int tamanoPagina;
+
+    private ObjectMapper mapper;
+    private Servicio servicio;
+    private Map<String, Object> pagina;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mapper = JavalinJackson.defaultMapper();
+        servicio = crearServicio(1);
+
+        List<Servicio> servicios = new ArrayList<>(tamanoPagina);
+        for (int i = 0; i < tamanoPagina; i++) {
+            servicios.add(crearServicio(i));
+        }
+        pagina = Map.of("success", true, "data", servicios);
+    }
+
+    @Benchmark
+    public byte[] servicio() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(servicio);
+    }
+
+    @Benchmark
+    public byte[] paginaDeServicios() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(pagina);
+    }
+
+    private static Servicio crearServicio(int folio) {
+        Servicio s = new Servicio();
+        s.setId(UUID.randomUUID().toString());
+        s.setFolioServicio(folio);
+        s.setTecnicoId(UUID.randomUUID().toString());
+        s.setTecnicoNombre("Técnico de prueba");
+        s.setNombreCliente("Cliente " + folio + " Apellido");
+        s.setNumeroCelular("5512345678");
+        s.setMarca("Samsung");
+        s.setModelo("RT38K5930SL");
+        s.setProblemaReportado("La tarjeta no enciende después de un apagón");
+        s.setDiagnosticoTecnico("Fuente dañada, se reemplaza regulador");
+        s.setEstado("EN_PROCESO");
+        s.setFechaIngreso(LocalDateTime.now().minusDays(3));
+        s.setCostoReparacion(new BigDecimal("850.00"));
+        return s;
+    }
+}
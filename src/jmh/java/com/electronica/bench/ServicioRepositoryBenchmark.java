@@ -0,0 +1,48 @@
+package com.electronica.bench;
+
+import com.electronica.servicio.models.Servicio;
+import com.electronica.servicio.repository.ServicioRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Listado completo y búsqueda por id de servicios contra H2.
+ */
+@State(Scope.Benchmark)
+public class ServicioRepositoryBenchmark {
+
+    @Param({ "1000" })
+    public int clientes;
+
+    @Param({ "5" })
+    public int serviciosPorCliente;
+
+    private BaseDeDatosBench db;
+    private ServicioRepository repository;
+    private List<String> ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        db = new BaseDeDatosBench(clientes, serviciosPorCliente);
+        repository = new ServicioRepository(db.getDataSource());
+        ids = db.getServicioIds();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        db.close();
+    }
+
+    @Benchmark
+    public List<Servicio> findAll() {
+        return repository.findAll();
+    }
+
+    @Benchmark
+    public Optional<Servicio> findById() {
+        return repository.findById(ids.get(ThreadLocalRandom.current().nextInt(ids.size())));
+    }
+}
@@ -0,0 +1,45 @@
+package com.electronica.bench;
+
+import com.electronica.stats.services.IngresosRollup;
+import com.electronica.stats.services.StatsService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+
+/**
+ * Resumen del dashboard (GET /api/stats/summary) y la reconciliación de los
+ * acumulados que lo alimenta.
+ */
+@State(Scope.Benchmark)
+public class StatsServiceBenchmark {
+
+    @Param({ "1000" })
+    public int clientes;
+
+    private BaseDeDatosBench db;
+    private IngresosRollup rollup;
+    private StatsService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        db = new BaseDeDatosBench(clientes, 5);
+        rollup = new IngresosRollup(db.getDataSource());
+        rollup.reconciliar();
+        service = new StatsService(db.getDataSource(), rollup);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        db.close();
+    }
+
+    @Benchmark
+    public Map<String, Object> getSummary() {
+        return service.resumen();
+    }
+
+    @Benchmark
+    public void reconciliar() {
+        rollup.reconciliar();
+    }
+}
@@ -0,0 +1,80 @@
+-- Esquema de database_schema.sql adaptado a H2 (MODE=MySQL) para los benchmarks
+CREATE TABLE users (
+    id VARCHAR(36) PRIMARY KEY,
+    nombre_completo VARCHAR(255) NOT NULL,
+    correo_electronico VARCHAR(255) NOT NULL UNIQUE,
+    contrasena VARCHAR(255) NOT NULL,
+    tipo VARCHAR(50) NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE clientes (
+    id VARCHAR(36) PRIMARY KEY,
+    nombre VARCHAR(100) NOT NULL,
+    apellidos VARCHAR(100) NOT NULL,
+    numero_celular VARCHAR(20) NOT NULL UNIQUE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    deleted_at TIMESTAMP NULL,
+    total_pedidos INT NOT NULL DEFAULT 0
+);
+
+CREATE INDEX idx_clientes_listado ON clientes(deleted_at, nombre);
+
+CREATE TABLE marcas (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    nombre_marca VARCHAR(50) NOT NULL UNIQUE
+);
+
+CREATE TABLE equipos (
+    id VARCHAR(36) PRIMARY KEY,
+    cliente_id VARCHAR(36),
+    marca_id INT NOT NULL,
+    modelo VARCHAR(100),
+    tipo_equipo VARCHAR(50) DEFAULT 'Tarjeta Electrónica',
+    numero_serie VARCHAR(100),
+    FOREIGN KEY (cliente_id) REFERENCES clientes(id) ON DELETE SET NULL,
+    FOREIGN KEY (marca_id) REFERENCES marcas(id)
+);
+
+CREATE TABLE servicios (
+    id VARCHAR(36) PRIMARY KEY,
+    folio_servicio INT AUTO_INCREMENT UNIQUE,
+    equipo_id VARCHAR(36) NOT NULL,
+    tecnico_id VARCHAR(36) NOT NULL,
+    problema_reportado TEXT NOT NULL,
+    fecha_ingreso TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    diagnostico_tecnico TEXT,
+    estado VARCHAR(20) DEFAULT 'PENDIENTE',
+    fecha_estimada_entrega DATETIME,
+    fecha_finalizacion DATETIME,
+    fecha_entrega_cliente DATETIME,
+    costo_reparacion DECIMAL(10,2) DEFAULT 0.00,
+    FOREIGN KEY (equipo_id) REFERENCES equipos(id) ON DELETE CASCADE,
+    FOREIGN KEY (tecnico_id) REFERENCES users(id)
+);
+
+CREATE INDEX idx_servicios_fecha_ingreso ON servicios(fecha_ingreso);
+CREATE INDEX idx_servicios_estado_ingreso ON servicios(estado, fecha_ingreso);
+CREATE INDEX idx_servicios_tecnico_ingreso ON servicios(tecnico_id, fecha_ingreso);
+CREATE INDEX idx_servicios_estado_finalizacion ON servicios(estado, fecha_finalizacion);
+
+CREATE VIEW vista_servicios_completa AS
+SELECT
+    s.id AS servicio_id,
+    s.folio_servicio,
+    CONCAT(c.nombre, ' ', c.apellidos) AS nombre_cliente,
+    c.numero_celular,
+    m.nombre_marca AS marca,
+    e.modelo,
+    s.problema_reportado,
+    s.diagnostico_tecnico,
+    u.nombre_completo AS tecnico_nombre,
+    s.estado,
+    s.fecha_ingreso,
+    s.fecha_entrega_cliente,
+    s.costo_reparacion
+FROM servicios s
+JOIN equipos e ON s.equipo_id = e.id
+JOIN clientes c ON e.cliente_id = c.id
+JOIN marcas m ON e.marca_id = m.id
+JOIN users u ON s.tecnico_id = u.id;
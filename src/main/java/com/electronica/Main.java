@@ -1,17 +1,33 @@
 package com.electronica;
 
+import com.electronica.auth.repositories.EmailOutboxRepository;
+import com.electronica.auth.repositories.ResetTokenRepository;
 import com.electronica.auth.repositories.UserRepository;
 import com.electronica.auth.routes.AuthRoutes;
 import com.electronica.auth.services.AuthService;
+import com.electronica.auth.services.DirectorioTecnicos;
+import com.electronica.auth.services.EmailDispatcher;
 import com.electronica.auth.services.EmailService;
+import com.electronica.auth.services.PlantillasEmail;
+import com.electronica.auth.services.HashContrasenas;
+import com.electronica.auth.services.IntentosLogin;
+import com.electronica.auth.services.LimpiezaTokensReset;
 import com.electronica.cliente.repository.ClienteRepository;
 import com.electronica.cliente.routes.ClienteRoutes;
+import com.electronica.cliente.services.ClienteIndice;
 import com.electronica.cliente.services.ClienteService;
 import com.electronica.config.DatabaseConfig;
 import com.electronica.config.EnvConfig;
+import com.electronica.config.JsonStreaming;
+import com.electronica.config.JwtConfig;
+import com.electronica.config.LecturasReplica;
+import com.electronica.config.UnidadDeTrabajo;
 import com.electronica.equipo.repository.EquipoRepository;
 import com.electronica.equipo.routes.EquipoRoutes;
 import com.electronica.equipo.services.EquipoService;
+import com.electronica.importacion.repository.ImportacionRepository;
+import com.electronica.importacion.routes.ImportacionRoutes;
+import com.electronica.importacion.services.ImportacionService;
 import com.electronica.inventario.repository.RefaccionRepository;
 import com.electronica.inventario.repository.TarjetaVentaRepository;
 import com.electronica.inventario.routes.InventarioRoutes;
@@ -19,9 +35,14 @@ import com.electronica.inventario.services.InventarioService;
 import com.electronica.marca.repository.MarcaRepository;
 import com.electronica.marca.routes.MarcaRoutes;
 import com.electronica.marca.services.MarcaService;
+import com.electronica.metrics.Metricas;
+import com.electronica.recepcion.routes.RecepcionRoutes;
+import com.electronica.recepcion.services.RecepcionService;
 import com.electronica.servicio.repository.ServicioRepository;
 import com.electronica.servicio.routes.ServicioRoutes;
+import com.electronica.servicio.services.ExportacionService;
 import com.electronica.servicio.services.ServicioService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.javalin.Javalin;
 import io.javalin.json.JavalinJackson;
 
@@ -39,17 +60,44 @@ public class Main {
         try {
             EnvConfig.validateConfig();
 
-            DataSource dataSource = DatabaseConfig.createDataSource();
+            Metricas metricas = new Metricas();
+            // Los repositorios se unen a la transacción de unidadDeTrabajo.ejecutar() cuando la hay
+            UnidadDeTrabajo unidadDeTrabajo = new UnidadDeTrabajo(DatabaseConfig.createDataSource(metricas));
+            DataSource dataSource = unidadDeTrabajo;
             System.out.println("✅ Conexión a BD establecida");
 
+            // Listados, exportación y estadísticas se leen de la réplica cuando la hay
+            LecturasReplica lecturas = new LecturasReplica(dataSource, DatabaseConfig.createReplicaDataSource(metricas),
+                    EnvConfig.getDbReplicaMaxLagSeconds(), EnvConfig.getDbReadYourWritesSeconds(),
+                    EnvConfig.isDbReplicaStandaloneOk());
+            lecturas.iniciar(EnvConfig.getDbReplicaCheckSeconds());
+
             // --- AUTH ---
-            UserRepository userRepo = new UserRepository(dataSource);
-            EmailService emailService = new EmailService();
-            AuthService authService = new AuthService(userRepo, emailService);
+            UserRepository userRepo = new UserRepository(dataSource, EnvConfig.getUserCacheSize(),
+                    EnvConfig.getUserCacheTtlSeconds(), EnvConfig.getUserCacheNegativeTtlSeconds());
+            ResetTokenRepository resetTokenRepo = new ResetTokenRepository(dataSource);
+            new LimpiezaTokensReset(resetTokenRepo, EnvConfig.getResetTokenSweepBatch())
+                    .iniciar(EnvConfig.getResetTokenSweepMinutes());
+            EmailOutboxRepository emailOutboxRepo = new EmailOutboxRepository(dataSource);
+            EmailDispatcher emailDispatcher = new EmailDispatcher(emailOutboxRepo,
+                    new PlantillasEmail(userRepo, resetTokenRepo));
+            emailDispatcher.iniciar(EnvConfig.getEmailOutboxIntervalSeconds());
+            EmailService emailService = new EmailService(emailOutboxRepo, emailDispatcher);
+            DirectorioTecnicos directorioTecnicos = new DirectorioTecnicos(userRepo);
+            directorioTecnicos.iniciar(EnvConfig.getTecnicosRefreshSeconds());
+            HashContrasenas hashContrasenas = new HashContrasenas(EnvConfig.getBcryptCost(),
+                    EnvConfig.getBcryptThreads(), EnvConfig.getBcryptQueueSize());
+            IntentosLogin intentosLogin = new IntentosLogin(EnvConfig.getLoginMaxAttempts(),
+                    EnvConfig.getLoginMaxAttemptsPerIp(), EnvConfig.getLoginWindowSeconds());
+            AuthService authService = new AuthService(unidadDeTrabajo, userRepo, resetTokenRepo, emailService,
+                    directorioTecnicos, hashContrasenas, intentosLogin);
 
             // --- CLIENTE ---
-            ClienteRepository clienteRepo = new ClienteRepository(dataSource);
-            ClienteService clienteService = new ClienteService(clienteRepo);
+            ClienteRepository clienteRepo = new ClienteRepository(dataSource, lecturas);
+            ClienteIndice clienteIndice = new ClienteIndice(clienteRepo);
+            clienteIndice.reconstruir();
+            clienteRepo.setListener(clienteIndice);
+            ClienteService clienteService = new ClienteService(clienteRepo, clienteIndice);
 
             // --- MARCA ---
             MarcaRepository marcaRepo = new MarcaRepository(dataSource);
@@ -60,8 +108,13 @@ public class Main {
             EquipoService equipoService = new EquipoService(equipoRepo);
 
             // --- SERVICIO ---
-            ServicioRepository servicioRepo = new ServicioRepository(dataSource);
+            ServicioRepository servicioRepo = new ServicioRepository(dataSource, lecturas);
             ServicioService servicioService = new ServicioService(servicioRepo);
+            ExportacionService exportacionService = new ExportacionService(servicioRepo);
+
+            // --- RECEPCIÓN ---
+            RecepcionService recepcionService = new RecepcionService(unidadDeTrabajo, clienteRepo, equipoRepo,
+                    servicioRepo);
 
             // --- INVENTARIO ---
             RefaccionRepository refaccionRepo = new RefaccionRepository(dataSource);
@@ -73,33 +126,82 @@ public class Main {
                     dataSource);
             inventarioService.setMaterialRepository(materialRepo);
 
+            // Un solo ObjectMapper para ctx.json() y para las respuestas en streaming
+            ObjectMapper objectMapper = JavalinJackson.defaultMapper();
+            JsonStreaming.setMapper(objectMapper);
+
+            boolean virtualThreads = EnvConfig.isVirtualThreadsEnabled();
+
             Javalin app = Javalin.create(config -> {
+                config.useVirtualThreads = virtualThreads;
+                config.requestLogger.http(metricas::registrarPeticion);
                 config.bundledPlugins.enableCors(cors -> cors.addRule(it -> it.anyHost()));
-                config.jsonMapper(new JavalinJackson());
+                config.jsonMapper(new JavalinJackson(objectMapper, virtualThreads));
             });
 
+            // Sesión de cada petición, para que quien acaba de escribir lea de la primaria
+            app.before(ctx -> LecturasReplica.iniciarPeticion(
+                    ctx.header("Authorization") != null ? ctx.header("Authorization") : ctx.ip(),
+                    switch (ctx.method()) {
+                        case POST, PUT, PATCH, DELETE -> true;
+                        default -> false;
+                    }));
+            app.after(ctx -> lecturas.terminarPeticion(ctx.statusCode() < 400));
+
             app.get("/api/health", ctx -> ctx.json(Map.of(
                     "status", "OK",
                     "version", VERSION,
-                    "timestamp", LocalDateTime.now().format(FORMATTER))));
+                    "timestamp", LocalDateTime.now().format(FORMATTER),
+                    "email", emailDispatcher.getEstadisticas(),
+                    "bcrypt", hashContrasenas.getEstadisticas(),
+                    "usuariosCache", userRepo.getEstadisticasCache(),
+                    "login", intentosLogin.getEstadisticas(),
+                    "replica", lecturas.getEstadisticas())));
+
+            // Tráfico por ruta y detalles del pool: solo con token, como las demás rutas de administración
+            app.before("/api/metrics*", JwtConfig::validateToken);
+
+            // Formato de texto de Prometheus
+            app.get("/api/metrics", ctx -> ctx
+                    .contentType("text/plain; version=0.0.4; charset=utf-8")
+                    .result(metricas.exportarPrometheus()));
+
+            // Tamaño de pool recomendado según la carga de los últimos 5 minutos
+            app.get("/api/metrics/pool", ctx -> ctx.json(Map.of("success", true, "data", metricas.reportePool())));
 
             // Register Routes
             AuthRoutes.register(app, authService);
             ClienteRoutes.register(app, clienteService);
             MarcaRoutes.register(app, marcaService);
             EquipoRoutes.register(app, equipoService);
-            ServicioRoutes.register(app, servicioService);
+            ServicioRoutes.register(app, servicioService, exportacionService);
             com.electronica.servicio.routes.TarjetaRoutes.register(app, servicioService);
             InventarioRoutes.register(app, inventarioService);
+            RecepcionRoutes.register(app, recepcionService);
 
             // New Routes
             com.electronica.inventario.routes.ProductoRoutes.register(app, inventarioService);
             com.electronica.inventario.routes.FinalizadoRoutes.register(app, servicioService);
 
-            com.electronica.stats.services.StatsService statsService = new com.electronica.stats.services.StatsService(
+            com.electronica.stats.services.IngresosRollup ingresosRollup = new com.electronica.stats.services.IngresosRollup(
                     dataSource);
+            ingresosRollup.iniciar(EnvConfig.getStatsReconcileMinutes());
+            servicioRepo.setFinalizacionListener(ingresosRollup);
+
+            com.electronica.stats.services.StatsService statsService = new com.electronica.stats.services.StatsService(
+                    lecturas, ingresosRollup);
             com.electronica.stats.routes.StatsRoutes.register(app, statsService);
 
+            // --- IMPORTACIÓN ---
+            ImportacionService importacionService = new ImportacionService(
+                    new ImportacionRepository(dataSource), marcaService);
+            // Las filas importadas no pasan por los listeners de los repositorios
+            importacionService.setAlTerminar(() -> {
+                ingresosRollup.reconciliar();
+                clienteIndice.reconstruir();
+            });
+            ImportacionRoutes.register(app, importacionService);
+
             app.error(404, ctx -> ctx.json(Map.of("success", false, "message", "Endpoint no encontrado")));
             app.exception(Exception.class, (e, ctx) -> {
                 e.printStackTrace();
@@ -109,7 +211,8 @@ public class Main {
             int port = EnvConfig.getServerPort();
             app.start(port);
 
-            System.out.println("✅ API iniciada en http://localhost:" + port);
+            System.out.println("✅ API iniciada en http://localhost:" + port
+                    + (virtualThreads ? " (hilos virtuales)" : ""));
 
         } catch (Exception e) {
             System.err.println("❌ ERROR: " + e.getMessage());
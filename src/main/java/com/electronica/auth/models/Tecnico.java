@@ -0,0 +1,5 @@
+package com.electronica.auth.models;
+
+/** Entrada del directorio de técnicos: solo lo que muestran los formularios. */
+public record Tecnico(String id, String nombre) {
+}
@@ -0,0 +1,205 @@
+package com.electronica.auth.repositories;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Cola persistente de correos pendientes de enviar (tabla email_outbox).
+ *
+ * Los correos se encolan durante la petición HTTP y los envía EmailDispatcher en
+ * segundo plano. Cada fila guarda solo la plantilla y el usuario; el contenido se
+ * arma al enviar (PlantillasEmail). Un correo enviado se borra; uno que agota sus
+ * intentos queda en estado FALLIDO.
+ *
+ * Antes de enviar, cada instancia reclama su lote (PENDIENTE -> ENVIANDO con su
+ * marca), así dos instancias nunca envían el mismo correo. Un reclamo que lleva
+ * más de RECLAMO_VENCIDO_MINUTOS sin resolverse (la instancia se cayó a medio
+ * lote) cuenta como un intento fallido: vuelve a PENDIENTE, o queda FALLIDO si ya
+ * agotó sus intentos, así un correo que tumba al dispatcher no se reclama para siempre.
+ */
+public class EmailOutboxRepository {
+    private static final int RECLAMO_VENCIDO_MINUTOS = 10;
+
+    private final DataSource dataSource;
+
+    public record Mensaje(long id, String destinatario, String plantilla, String userId, int intentos) {
+    }
+
+    public EmailOutboxRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+        initializeDatabase();
+    }
+
+    private void initializeDatabase() {
+        String createTableSQL = """
+                    CREATE TABLE IF NOT EXISTS email_outbox (
+                        id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                        destinatario VARCHAR(255) NOT NULL,
+                        plantilla VARCHAR(40) NOT NULL,
+                        user_id VARCHAR(36) NOT NULL,
+                        estado VARCHAR(20) NOT NULL DEFAULT 'PENDIENTE',
+                        intentos INT NOT NULL DEFAULT 0,
+                        proximo_intento DATETIME NOT NULL,
+                        reclamado_por CHAR(36),
+                        reclamado_en DATETIME,
+                        ultimo_error VARCHAR(500),
+                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                        INDEX idx_email_outbox_pendientes (estado, proximo_intento)
+                    )
+                """;
+
+        try (Connection conn = dataSource.getConnection();
+                Statement stmt = conn.createStatement()) {
+            stmt.execute(createTableSQL);
+            System.out.println("✅ Tabla 'email_outbox' inicializada");
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al inicializar tabla email_outbox", e);
+        }
+    }
+
+    public void encolar(String destinatario, String plantilla, String userId) {
+        String sql = "INSERT INTO email_outbox (destinatario, plantilla, user_id, proximo_intento) VALUES (?, ?, ?, ?)";
+
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, destinatario);
+            stmt.setString(2, plantilla);
+            stmt.setString(3, userId);
+            stmt.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+            stmt.executeUpdate();
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al encolar email", e);
+        }
+    }
+
+    /**
+     * Reclama hasta {@code limite} correos pendientes cuyo próximo intento ya venció
+     * (los más antiguos primero) y los devuelve. Otra instancia ya no los ve.
+     */
+    public List<Mensaje> reclamarPendientes(int limite, int maxIntentos) {
+        // MySQL asigna de izquierda a derecha: estado se calcula con el valor anterior de intentos
+        String sqlLiberar = """
+                    UPDATE email_outbox
+                    SET estado = IF(intentos + 1 >= ?, 'FALLIDO', 'PENDIENTE'),
+                        intentos = intentos + 1,
+                        reclamado_por = NULL,
+                        ultimo_error = 'Reclamo vencido: el envío no terminó'
+                    WHERE estado = 'ENVIANDO' AND reclamado_en < ?
+                """;
+        String sqlReclamar = """
+                    UPDATE email_outbox SET estado = 'ENVIANDO', reclamado_por = ?, reclamado_en = ?
+                    WHERE estado = 'PENDIENTE' AND proximo_intento <= ?
+                    ORDER BY proximo_intento, id
+                    LIMIT ?
+                """;
+        String sqlLeer = """
+                    SELECT id, destinatario, plantilla, user_id, intentos FROM email_outbox
+                    WHERE estado = 'ENVIANDO' AND reclamado_por = ?
+                    ORDER BY proximo_intento, id
+                """;
+
+        String marca = UUID.randomUUID().toString();
+        LocalDateTime ahora = LocalDateTime.now();
+        List<Mensaje> mensajes = new ArrayList<>();
+
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement liberar = conn.prepareStatement(sqlLiberar);
+                PreparedStatement reclamar = conn.prepareStatement(sqlReclamar);
+                PreparedStatement leer = conn.prepareStatement(sqlLeer)) {
+
+            liberar.setInt(1, maxIntentos);
+            liberar.setTimestamp(2, Timestamp.valueOf(ahora.minusMinutes(RECLAMO_VENCIDO_MINUTOS)));
+            liberar.executeUpdate();
+
+            reclamar.setString(1, marca);
+            reclamar.setTimestamp(2, Timestamp.valueOf(ahora));
+            reclamar.setTimestamp(3, Timestamp.valueOf(ahora));
+            reclamar.setInt(4, limite);
+            if (reclamar.executeUpdate() == 0) {
+                return mensajes;
+            }
+
+            leer.setString(1, marca);
+            try (ResultSet rs = leer.executeQuery()) {
+                while (rs.next()) {
+                    mensajes.add(new Mensaje(
+                            rs.getLong("id"),
+                            rs.getString("destinatario"),
+                            rs.getString("plantilla"),
+                            rs.getString("user_id"),
+                            rs.getInt("intentos")));
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al obtener emails pendientes", e);
+        }
+        return mensajes;
+    }
+
+    public void eliminar(long id) {
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement stmt = conn.prepareStatement("DELETE FROM email_outbox WHERE id = ?")) {
+            stmt.setLong(1, id);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al eliminar email enviado", e);
+        }
+    }
+
+    public void reprogramar(long id, int intentos, LocalDateTime proximoIntento, String error) {
+        String sql = "UPDATE email_outbox SET estado = 'PENDIENTE', reclamado_por = NULL, intentos = ?, " +
+                "proximo_intento = ?, ultimo_error = ? WHERE id = ?";
+
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, intentos);
+            stmt.setTimestamp(2, Timestamp.valueOf(proximoIntento));
+            stmt.setString(3, recortar(error));
+            stmt.setLong(4, id);
+            stmt.executeUpdate();
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al reprogramar email", e);
+        }
+    }
+
+    public void marcarFallido(long id, int intentos, String error) {
+        String sql = "UPDATE email_outbox SET estado = 'FALLIDO', reclamado_por = NULL, intentos = ?, ultimo_error = ? WHERE id = ?";
+
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, intentos);
+            stmt.setString(2, recortar(error));
+            stmt.setLong(3, id);
+            stmt.executeUpdate();
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al marcar email como fallido", e);
+        }
+    }
+
+    public long countPendientes() {
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT COUNT(*) FROM email_outbox WHERE estado = 'PENDIENTE'");
+                ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al contar emails pendientes", e);
+        }
+    }
+
+    private static String recortar(String error) {
+        if (error == null) return null;
+        return error.length() > 500 ? error.substring(0, 500) : error;
+    }
+}
@@ -0,0 +1,153 @@
+package com.electronica.auth.repositories;
+
+import com.electronica.config.Hash;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Tokens de recuperación de contraseña (tabla password_reset_tokens).
+ *
+ * Solo se guarda el SHA-256 del token, que es la llave primaria: buscarlo es una
+ * lectura por índice y una copia de la tabla no sirve para restablecer cuentas.
+ * Un usuario puede tener varios tokens vigentes (uno por correo enviado, incluidos
+ * los reintentos): un enlace ya entregado sigue sirviendo aunque se envíe otro.
+ * Restablecer la contraseña borra todos los del usuario.
+ * Los vencidos los borra LimpiezaTokensReset por lotes.
+ */
+public class ResetTokenRepository {
+    private final DataSource dataSource;
+
+    public record TokenReset(String userId, LocalDateTime expiraEn) {
+    }
+
+    public ResetTokenRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+        initializeDatabase();
+    }
+
+    private void initializeDatabase() {
+        String createTableSQL = """
+                    CREATE TABLE IF NOT EXISTS password_reset_tokens (
+                        token_hash CHAR(43) PRIMARY KEY,
+                        user_id VARCHAR(36) NOT NULL,
+                        expira_en DATETIME NOT NULL,
+                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                        INDEX idx_reset_tokens_usuario (user_id),
+                        INDEX idx_reset_tokens_expira (expira_en),
+                        FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+                    )
+                """;
+
+        try (Connection conn = dataSource.getConnection();
+                Statement stmt = conn.createStatement()) {
+            stmt.execute(createTableSQL);
+            System.out.println("✅ Tabla 'password_reset_tokens' inicializada");
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al inicializar tabla password_reset_tokens", e);
+        }
+    }
+
+    /** Guarda un token más del usuario; los anteriores siguen vigentes. */
+    public void guardar(String userId, String token, LocalDateTime expiraEn) {
+        String sql = "INSERT INTO password_reset_tokens (token_hash, user_id, expira_en) VALUES (?, ?, ?)";
+
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, Hash.sha256(token));
+            stmt.setString(2, userId);
+            stmt.setTimestamp(3, Timestamp.valueOf(expiraEn));
+            stmt.executeUpdate();
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al guardar token de recuperación", e);
+        }
+    }
+
+    /** Búsqueda por la llave primaria; incluye tokens ya vencidos (el llamador revisa expiraEn). */
+    public Optional<TokenReset> buscar(String token) {
+        String sql = "SELECT user_id, expira_en FROM password_reset_tokens WHERE token_hash = ?";
+
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, Hash.sha256(token));
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(new TokenReset(rs.getString(1), rs.getTimestamp(2).toLocalDateTime()));
+                }
+            }
+            return Optional.empty();
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al buscar token de recuperación", e);
+        }
+    }
+
+    /**
+     * Igual que buscar(), pero bloquea la fila (SELECT ... FOR UPDATE) hasta el fin de
+     * la transacción: otra petición con el mismo token espera y luego ya no lo encuentra.
+     * Solo tiene sentido dentro de UnidadDeTrabajo.ejecutar().
+     */
+    public Optional<TokenReset> buscarParaActualizar(String token) {
+        String sql = "SELECT user_id, expira_en FROM password_reset_tokens WHERE token_hash = ? FOR UPDATE";
+
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, Hash.sha256(token));
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(new TokenReset(rs.getString(1), rs.getTimestamp(2).toLocalDateTime()));
+                }
+            }
+            return Optional.empty();
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al buscar token de recuperación", e);
+        }
+    }
+
+    /** Borra todos los tokens del usuario (tras restablecer su contraseña). */
+    public void eliminarDelUsuario(String userId) {
+        String sql = "DELETE FROM password_reset_tokens WHERE user_id = ?";
+
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, userId);
+            stmt.executeUpdate();
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al eliminar tokens de recuperación", e);
+        }
+    }
+
+    /**
+     * Borra los tokens vencidos en lotes de {@code lote} filas, cada uno en su
+     * propia transacción para no bloquear la tabla. Devuelve cuántos borró.
+     */
+    public int eliminarExpirados(int lote) {
+        String sql = "DELETE FROM password_reset_tokens WHERE expira_en < ? LIMIT ?";
+        int total = 0;
+
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+            stmt.setInt(2, lote);
+            int borrados;
+            do {
+                borrados = stmt.executeUpdate();
+                total += borrados;
+            } while (borrados == lote);
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al eliminar tokens de recuperación vencidos", e);
+        }
+        return total;
+    }
+}
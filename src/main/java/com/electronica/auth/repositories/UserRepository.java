@@ -1,19 +1,50 @@
 package com.electronica.auth.repositories;
 
+import com.electronica.auth.models.Tecnico;
 import com.electronica.auth.models.User;
 
 import javax.sql.DataSource;
 import java.sql.*;
-import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class UserRepository {
     private final DataSource dataSource;
 
-    public UserRepository(DataSource dataSource) {
+    /**
+     * Si un email existe o no (en minúsculas, igual que compara la collation de MySQL),
+     * LRU y acotado. Los emails que no existen se recuerdan un TTL corto: una ráfaga
+     * de logins con correos inventados no llega a la BD.
+     *
+     * No guarda el usuario: el hash de la contraseña se lee siempre de la BD, así una
+     * lectura vieja no puede devolver una contraseña ya cambiada. save() invalida el
+     * email y sube la generación; una consulta que empezó antes no escribe su resultado.
+     */
+    private final Map<String, EntradaCache> cachePorEmail;
+    private final long ttlMs;
+    private final long ttlNegativoMs;
+    private final AtomicLong generacion = new AtomicLong();
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+
+    private record EntradaCache(boolean existe, long expiraEn) {
+    }
+
+    public UserRepository(DataSource dataSource, int tamanoCache, long ttlSegundos, long ttlNegativoSegundos) {
         this.dataSource = dataSource;
+        this.ttlMs = ttlSegundos * 1000;
+        this.ttlNegativoMs = ttlNegativoSegundos * 1000;
+        this.cachePorEmail = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, EntradaCache> eldest) {
+                return size() > tamanoCache;
+            }
+        };
         initializeDatabase();
     }
 
@@ -55,6 +86,7 @@ public class UserRepository {
             stmt.setTimestamp(6, Timestamp.valueOf(user.getCreatedAt()));
 
             stmt.executeUpdate();
+            invalidarEmail(user.getCorreoElectronico());
             return user;
 
         } catch (SQLException e) {
@@ -62,7 +94,21 @@ public class UserRepository {
         }
     }
 
+    /** Los emails que se sabe que no existen no consultan la BD; los demás sí, siempre. */
     public Optional<User> findByEmail(String email) {
+        String clave = email.toLowerCase(Locale.ROOT);
+        EntradaCache cacheada = leerCache(clave);
+        if (cacheada != null && !cacheada.existe()) {
+            return Optional.empty();
+        }
+
+        long generacionLeida = generacion.get();
+        Optional<User> user = findByEmailEnBd(email);
+        guardarCache(clave, user.isPresent(), generacionLeida);
+        return user;
+    }
+
+    private Optional<User> findByEmailEnBd(String email) {
         String sql = "SELECT * FROM users WHERE correo_electronico = ?";
 
         try (Connection conn = dataSource.getConnection();
@@ -100,11 +146,6 @@ public class UserRepository {
         }
     }
 
-    public Optional<User> findByResetToken(String token) {
-        // Not supported in current schema
-        return Optional.empty();
-    }
-
     public void updatePassword(String userId, String newPassword) {
         String sql = "UPDATE users SET contrasena = ? WHERE id = ?";
 
@@ -121,28 +162,92 @@ public class UserRepository {
         }
     }
 
-    public void updateResetToken(String userId, String token, LocalDateTime expiry) {
-        // Not supported in current schema
-        // We log a warning or just do nothing
-        System.out.println("⚠️ updateResetToken called but schema does not support reset_token columns.");
+    /**
+     * Cambia el hash solo si sigue siendo el que se verificó (compare-and-set).
+     * Si otra petición ya cambió la contraseña (p. ej. un reset), no la pisa.
+     *
+     * @return true si se actualizó
+     */
+    public boolean updatePasswordSiIgual(String userId, String hashAnterior, String hashNuevo) {
+        String sql = "UPDATE users SET contrasena = ? WHERE id = ? AND contrasena = ?";
+
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, hashNuevo);
+            stmt.setString(2, userId);
+            stmt.setString(3, hashAnterior);
+
+            return stmt.executeUpdate() > 0;
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al actualizar contraseña", e);
+        }
     }
 
+    /** Pasa por la misma cache que findByEmail. */
     public boolean existsByEmail(String email) {
-        String sql = "SELECT COUNT(*) FROM users WHERE correo_electronico = ?";
+        String clave = email.toLowerCase(Locale.ROOT);
+        EntradaCache cacheada = leerCache(clave);
+        if (cacheada != null) {
+            return cacheada.existe();
+        }
 
+        long generacionLeida = generacion.get();
+        boolean existe;
         try (Connection conn = dataSource.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
+                PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT 1 FROM users WHERE correo_electronico = ?")) {
 
             stmt.setString(1, email);
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                return rs.getInt(1) > 0;
+            try (ResultSet rs = stmt.executeQuery()) {
+                existe = rs.next();
             }
-            return false;
 
         } catch (SQLException e) {
-            throw new RuntimeException("Error al verificar existencia de email", e);
+            throw new RuntimeException("Error al verificar email", e);
+        }
+        guardarCache(clave, existe, generacionLeida);
+        return existe;
+    }
+
+    public Map<String, Object> getEstadisticasCache() {
+        int tamano;
+        synchronized (cachePorEmail) {
+            tamano = cachePorEmail.size();
+        }
+        return Map.of("tamano", tamano, "aciertos", aciertos.get(), "fallos", fallos.get());
+    }
+
+    private EntradaCache leerCache(String clave) {
+        synchronized (cachePorEmail) {
+            EntradaCache entrada = cachePorEmail.get(clave);
+            if (entrada != null && entrada.expiraEn() > System.currentTimeMillis()) {
+                aciertos.incrementAndGet();
+                return entrada;
+            }
+            if (entrada != null) {
+                cachePorEmail.remove(clave);
+            }
+        }
+        fallos.incrementAndGet();
+        return null;
+    }
+
+    // Se descarta si hubo un save() mientras se consultaba la BD
+    private void guardarCache(String clave, boolean existe, long generacionLeida) {
+        long expiraEn = System.currentTimeMillis() + (existe ? ttlMs : ttlNegativoMs);
+        synchronized (cachePorEmail) {
+            if (generacion.get() == generacionLeida) {
+                cachePorEmail.put(clave, new EntradaCache(existe, expiraEn));
+            }
+        }
+    }
+
+    private void invalidarEmail(String email) {
+        synchronized (cachePorEmail) {
+            generacion.incrementAndGet();
+            cachePorEmail.remove(email.toLowerCase(Locale.ROOT));
         }
     }
 
@@ -153,14 +258,6 @@ public class UserRepository {
         user.setCorreoElectronico(rs.getString("correo_electronico"));
         user.setContrasena(rs.getString("contrasena"));
         user.setTipo(rs.getString("tipo"));
-
-        // Reset token and updated_at columns are not in the schema provided by user
-        // user.setResetToken(rs.getString("reset_token"));
-        // Timestamp resetTokenExpiry = rs.getTimestamp("reset_token_expiry");
-        // if (resetTokenExpiry != null) {
-        // user.setResetTokenExpiry(resetTokenExpiry.toLocalDateTime());
-        // }
-
         user.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
         // user.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime());
 
@@ -186,4 +283,23 @@ public class UserRepository {
         }
         return users;
     }
-}
\ No newline at end of file
+
+    /** Solo id y nombre de los técnicos, sin contraseñas ni tokens. */
+    public List<Tecnico> findTecnicos() {
+        String sql = "SELECT id, nombre_completo FROM users WHERE tipo = 'tecnico' ORDER BY nombre_completo";
+        List<Tecnico> tecnicos = new ArrayList<>();
+
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql);
+                ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                tecnicos.add(new Tecnico(rs.getString(1), rs.getString(2)));
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al listar técnicos", e);
+        }
+        return tecnicos;
+    }
+}
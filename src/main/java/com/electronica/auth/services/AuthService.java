@@ -1,25 +1,38 @@
 package com.electronica.auth.services;
 
-import com.electronica.config.EnvConfig;
+import com.electronica.config.Hash;
 import com.electronica.config.JwtConfig;
+import com.electronica.config.UnidadDeTrabajo;
 import com.electronica.auth.models.User;
+import com.electronica.auth.repositories.ResetTokenRepository;
 import com.electronica.auth.repositories.UserRepository;
 import io.javalin.http.Context;
-import org.mindrot.jbcrypt.BCrypt;
 
 import java.time.LocalDateTime;
-import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.RejectedExecutionException;
 
 public class AuthService {
+    private final UnidadDeTrabajo unidadDeTrabajo;
     private final UserRepository userRepository;
+    private final ResetTokenRepository resetTokenRepository;
     private final EmailService emailService;
-
-    public AuthService(UserRepository userRepository, EmailService emailService) {
+    private final DirectorioTecnicos directorioTecnicos;
+    private final HashContrasenas hashContrasenas;
+    private final IntentosLogin intentosLogin;
+
+    public AuthService(UnidadDeTrabajo unidadDeTrabajo, UserRepository userRepository,
+            ResetTokenRepository resetTokenRepository, EmailService emailService,
+            DirectorioTecnicos directorioTecnicos, HashContrasenas hashContrasenas,
+            IntentosLogin intentosLogin) {
+        this.unidadDeTrabajo = unidadDeTrabajo;
         this.userRepository = userRepository;
+        this.resetTokenRepository = resetTokenRepository;
         this.emailService = emailService;
+        this.directorioTecnicos = directorioTecnicos;
+        this.hashContrasenas = hashContrasenas;
+        this.intentosLogin = intentosLogin;
     }
 
     /**
@@ -76,31 +89,24 @@ public class AuthService {
                 return;
             }
 
-            // Guardar la contraseña en texto plano ANTES de encriptarla
-            String contrasenaTextoPlano = contrasena;
-
             // Crear usuario
             User user = new User();
             user.setId(UUID.randomUUID().toString());
             user.setNombreCompleto(nombreCompleto);
             user.setCorreoElectronico(email);
             user.setTipo(tipo);
-            user.setContrasena(BCrypt.hashpw(contrasena, BCrypt.gensalt()));
+            user.setContrasena(hashContrasenas.hash(contrasena));
 
             // Guardar en BD
             User saved = userRepository.save(user);
+            directorioTecnicos.invalidar();
 
-            // 🔥 ENVIAR EMAIL DE BIENVENIDA CON CREDENCIALES
+            // 🔥 ENCOLAR EMAIL DE BIENVENIDA (se envía en segundo plano, con un enlace para
+            // definir la contraseña; la contraseña nunca se guarda ni se envía en claro)
             try {
-                emailService.sendWelcomeEmail(
-                        saved.getCorreoElectronico(),
-                        saved.getNombreCompleto(),
-                        contrasenaTextoPlano,  // Enviar contraseña en texto plano
-                        saved.getTipo()
-                );
-                System.out.println("✅ Email de bienvenida enviado a: " + saved.getCorreoElectronico());
+                emailService.sendWelcomeEmail(saved.getCorreoElectronico(), saved.getId());
             } catch (Exception emailError) {
-                System.err.println("⚠️ Error al enviar email (pero usuario creado): " + emailError.getMessage());
+                System.err.println("⚠️ Error al encolar email (pero usuario creado): " + emailError.getMessage());
                 // No fallar el registro si falla el email
             }
 
@@ -109,7 +115,7 @@ public class AuthService {
 
             ctx.status(201).json(Map.of(
                     "success", true,
-                    "message", "Usuario registrado exitosamente. Se ha enviado un email con las credenciales.",
+                    "message", "Usuario registrado exitosamente. Se ha enviado un email para definir la contraseña.",
                     "data", Map.of(
                             "token", token,
                             "userId", saved.getId(),
@@ -119,6 +125,8 @@ public class AuthService {
                     )
             ));
 
+        } catch (RejectedExecutionException e) {
+            demasiadasSolicitudes(ctx);
         } catch (Exception e) {
             System.err.println("❌ Error en registro: " + e.getMessage());
             e.printStackTrace();
@@ -133,10 +141,13 @@ public class AuthService {
      * LOGIN DE USUARIO
      */
     public void login(Context ctx) {
+        String ip = ctx.ip();
+        String email = null;
+
         try {
             var body = ctx.bodyAsClass(Map.class);
 
-            String email = (String) body.get("correoElectronico");
+            email = (String) body.get("correoElectronico");
             String password = (String) body.get("contrasena");
 
             if (email == null || email.isEmpty()) {
@@ -155,13 +166,33 @@ public class AuthService {
                 return;
             }
 
+            long bloqueada = intentosLogin.segundosBloqueada(ip, email);
+            if (bloqueada > 0) {
+                ctx.header("Retry-After", String.valueOf(bloqueada));
+                ctx.status(429).json(Map.of(
+                        "success", false,
+                        "message", "Demasiados intentos fallidos, intenta de nuevo en " + bloqueada + " segundos"
+                ));
+                return;
+            }
+
             User user = userRepository.findByEmail(email)
                     .orElseThrow(() -> new IllegalArgumentException("Credenciales inválidas"));
 
-            if (!BCrypt.checkpw(password, user.getContrasena())) {
+            if (!hashContrasenas.verificar(password, user.getContrasena())) {
                 throw new IllegalArgumentException("Credenciales inválidas");
             }
 
+            // Hashes con un costo anterior se actualizan sin hacer esperar al login. Solo si el
+            // hash sigue siendo el verificado: un reset que llegue mientras tanto no se pierde.
+            if (hashContrasenas.necesitaRehash(user.getContrasena())) {
+                String userId = user.getId();
+                String hashVerificado = user.getContrasena();
+                hashContrasenas.rehashEnSegundoPlano(password,
+                        nuevoHash -> userRepository.updatePasswordSiIgual(userId, hashVerificado, nuevoHash));
+            }
+
+            intentosLogin.registrarExito(ip, email);
             String token = JwtConfig.generateToken(user.getId(), user.getCorreoElectronico());
 
             ctx.json(Map.of(
@@ -177,10 +208,13 @@ public class AuthService {
             ));
 
         } catch (IllegalArgumentException e) {
+            intentosLogin.registrarFallo(ip, email);
             ctx.status(401).json(Map.of(
                     "success", false,
                     "message", e.getMessage()
             ));
+        } catch (RejectedExecutionException e) {
+            demasiadasSolicitudes(ctx);
         } catch (Exception e) {
             System.err.println("❌ Error en login: " + e.getMessage());
             e.printStackTrace();
@@ -210,13 +244,8 @@ public class AuthService {
             User user = userRepository.findByEmail(email)
                     .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
 
-            String resetToken = UUID.randomUUID().toString();
-            LocalDateTime expiry = LocalDateTime.now().plusHours(1);
-
-            userRepository.updateResetToken(user.getId(), resetToken, expiry);
-
-            String resetLink = EnvConfig.getAppFrontendUrl() + "/reset-password?token=" + resetToken;
-            emailService.sendPasswordResetEmail(user.getCorreoElectronico(), resetLink);
+            // El token se genera al enviar el correo (PlantillasEmail) para no guardarlo en la cola
+            emailService.sendPasswordResetEmail(user.getCorreoElectronico(), user.getId());
 
             ctx.json(Map.of(
                     "success", true,
@@ -264,16 +293,29 @@ public class AuthService {
                 return;
             }
 
-            User user = userRepository.findByResetToken(token)
+            ResetTokenRepository.TokenReset resetToken = resetTokenRepository.buscar(token)
                     .orElseThrow(() -> new IllegalArgumentException("Token inválido"));
 
-            if (user.getResetTokenExpiry().isBefore(LocalDateTime.now())) {
+            if (resetToken.expiraEn().isBefore(LocalDateTime.now())) {
                 throw new IllegalArgumentException("Token expirado");
             }
 
-            String hashedPassword = BCrypt.hashpw(newPassword, BCrypt.gensalt());
-            userRepository.updatePassword(user.getId(), hashedPassword);
-            userRepository.updateResetToken(user.getId(), null, null);
+            // El hash va antes de la transacción: si el pool de BCrypt está lleno, el token sigue
+            // sirviendo, y la fila del token no queda bloqueada mientras se calcula
+            String hashedPassword = hashContrasenas.hash(newPassword);
+
+            // Bloquear el token, cambiar la contraseña y borrar todos los tokens del usuario en una
+            // sola transacción: o pasa todo o el token sigue vigente
+            unidadDeTrabajo.ejecutar(() -> {
+                ResetTokenRepository.TokenReset bloqueado = resetTokenRepository.buscarParaActualizar(token)
+                        .orElseThrow(() -> new IllegalArgumentException("Token inválido"));
+                if (bloqueado.expiraEn().isBefore(LocalDateTime.now())) {
+                    throw new IllegalArgumentException("Token expirado");
+                }
+                userRepository.updatePassword(bloqueado.userId(), hashedPassword);
+                resetTokenRepository.eliminarDelUsuario(bloqueado.userId());
+                return null;
+            });
 
             ctx.json(Map.of(
                     "success", true,
@@ -285,6 +327,8 @@ public class AuthService {
                     "success", false,
                     "message", e.getMessage()
             ));
+        } catch (RejectedExecutionException e) {
+            demasiadasSolicitudes(ctx);
         } catch (Exception e) {
             System.err.println("❌ Error al resetear contraseña: " + e.getMessage());
             e.printStackTrace();
@@ -295,21 +339,18 @@ public class AuthService {
         }
     }
 
-    // ... (al final de tu clase AuthService, después de resetPassword)
-
+    /**
+     * LISTA DE TÉCNICOS (id y nombre) desde el directorio en memoria
+     */
     public void getTecnicos(Context ctx) {
         try {
-            // ¡Esta clase SÍ tiene 'userRepository'!
-            List<User> tecnicos = userRepository.findByTipo("tecnico");
+            DirectorioTecnicos.Directorio directorio = directorioTecnicos.getDirectorio();
 
-            List<Map<String, String>> tecnicoData = tecnicos.stream()
-                    .map(user -> Map.of(
-                            "id", user.getId(),
-                            "nombre", user.getNombreCompleto()
-                    ))
-                    .collect(Collectors.toList());
+            if (Hash.noModificado(ctx, directorio.etag())) {
+                return;
+            }
 
-            ctx.json(Map.of("success", true, "data", tecnicoData));
+            ctx.json(Map.of("success", true, "data", directorio.tecnicos()));
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -319,4 +360,13 @@ public class AuthService {
             ));
         }
     }
+
+    // El pool de BCrypt está lleno: el cliente debe reintentar en un momento
+    private static void demasiadasSolicitudes(Context ctx) {
+        ctx.header("Retry-After", "1");
+        ctx.status(429).json(Map.of(
+                "success", false,
+                "message", "Demasiadas solicitudes, intenta de nuevo en un momento"
+        ));
+    }
 }
@@ -0,0 +1,83 @@
+package com.electronica.auth.services;
+
+import com.electronica.auth.models.Tecnico;
+import com.electronica.auth.repositories.UserRepository;
+import com.electronica.config.Hash;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lista de técnicos (id y nombre) en memoria para GET /api/users/tecnicos, que
+ * se consulta en cada formulario de recepción.
+ *
+ * Se invalida al registrar un usuario y se recarga en segundo plano; además se
+ * refresca periódicamente por si los usuarios cambian directamente en la BD.
+ */
+public class DirectorioTecnicos {
+
+    private final UserRepository userRepository;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile Directorio directorio;
+
+    public record Directorio(List<Tecnico> tecnicos, String etag) {
+    }
+
+    public DirectorioTecnicos(UserRepository userRepository) {
+        this.userRepository = userRepository;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "tecnicos-refrescar");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public void iniciar(long intervaloSegundos) {
+        refrescar();
+        scheduler.scheduleWithFixedDelay(this::refrescarSinFallar, intervaloSegundos, intervaloSegundos,
+                TimeUnit.SECONDS);
+        System.out.println("✅ Directorio de técnicos cargado (" + directorio.tecnicos().size()
+                + " técnicos, refresco cada " + intervaloSegundos + " s)");
+    }
+
+    public Directorio getDirectorio() {
+        Directorio actual = directorio;
+        if (actual == null) {
+            // Invalidado y la recarga en segundo plano aún no termina: se carga aquí
+            synchronized (this) {
+                if (directorio == null) {
+                    refrescar();
+                }
+                actual = directorio;
+            }
+        }
+        return actual;
+    }
+
+    /** Llamar después de registrar o modificar usuarios. */
+    public void invalidar() {
+        directorio = null;
+        scheduler.execute(this::refrescarSinFallar);
+    }
+
+    public synchronized void refrescar() {
+        List<Tecnico> tecnicos = userRepository.findTecnicos();
+
+        StringBuilder contenido = new StringBuilder();
+        for (Tecnico tecnico : tecnicos) {
+            contenido.append(tecnico.id()).append('=').append(tecnico.nombre()).append('\n');
+        }
+        directorio = new Directorio(List.copyOf(tecnicos), Hash.etag(contenido.toString()));
+    }
+
+    private void refrescarSinFallar() {
+        try {
+            refrescar();
+        } catch (Exception e) {
+            System.err.println("⚠️ Error al refrescar directorio de técnicos: " + e.getMessage());
+        }
+    }
+}
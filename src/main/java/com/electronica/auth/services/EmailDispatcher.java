@@ -0,0 +1,197 @@
+package com.electronica.auth.services;
+
+import com.electronica.auth.repositories.EmailOutboxRepository;
+import com.electronica.auth.repositories.EmailOutboxRepository.Mensaje;
+import com.electronica.config.EnvConfig;
+
+import javax.mail.*;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Envía en segundo plano los correos de email_outbox.
+ *
+ * Cada lote abre una sola conexión SMTP (Transport) y la reutiliza para todos los
+ * mensajes. Si un envío falla se reprograma con espera exponencial
+ * (base * 2^intentos, máximo 1 hora) hasta agotar los intentos.
+ * Todo corre en un solo hilo, así que nunca hay dos lotes a la vez en esta
+ * instancia; entre instancias, cada lote se reclama antes de enviarse.
+ * El contenido de cada correo lo arma PlantillasEmail justo antes de enviarlo.
+ */
+public class EmailDispatcher {
+
+    private static final long ESPERA_MAXIMA_SEGUNDOS = 3600;
+
+    private final EmailOutboxRepository outbox;
+    private final PlantillasEmail plantillas;
+    private final String fromEmail;
+    private final String password;
+    private final Properties properties;
+    private final int tamanoLote;
+    private final int maxIntentos;
+    private final long esperaBaseSegundos;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "email-dispatcher");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean loteProgramado = new AtomicBoolean(false);
+
+    // Métricas
+    private final AtomicLong pendientes = new AtomicLong();
+    private final AtomicLong enviados = new AtomicLong();
+    private final AtomicLong reintentos = new AtomicLong();
+    private final AtomicLong fallidos = new AtomicLong();
+    private volatile LocalDateTime ultimoLote;
+
+    public EmailDispatcher(EmailOutboxRepository outbox, PlantillasEmail plantillas) {
+        this.outbox = outbox;
+        this.plantillas = plantillas;
+        this.fromEmail = EnvConfig.getEmailFrom();
+        this.password = EnvConfig.isEmailSmtpAuth() ? EnvConfig.getEmailPassword() : null;
+        this.tamanoLote = EnvConfig.getEmailOutboxBatchSize();
+        this.maxIntentos = EnvConfig.getEmailOutboxMaxAttempts();
+        this.esperaBaseSegundos = EnvConfig.getEmailOutboxRetrySeconds();
+
+        this.properties = new Properties();
+        properties.put("mail.smtp.auth", String.valueOf(EnvConfig.isEmailSmtpAuth()));
+        properties.put("mail.smtp.starttls.enable", String.valueOf(EnvConfig.isEmailSmtpStarttls()));
+        properties.put("mail.smtp.host", EnvConfig.getEmailSmtpHost());
+        properties.put("mail.smtp.port", EnvConfig.getEmailSmtpPort());
+        properties.put("mail.smtp.ssl.trust", EnvConfig.getEmailSmtpHost());
+        properties.put("mail.smtp.ssl.protocols", "TLSv1.2");
+        properties.put("mail.smtp.connectiontimeout", "10000");
+        properties.put("mail.smtp.timeout", "20000");
+    }
+
+    /**
+     * Revisa la cola cada {@code segundos}, además de cuando se encola un correo.
+     */
+    public void iniciar(long segundos) {
+        executor.scheduleWithFixedDelay(this::procesarPendientes, 0, segundos, TimeUnit.SECONDS);
+        System.out.println("📮 Envío de emails en segundo plano cada " + segundos + " s (lotes de " + tamanoLote + ")");
+    }
+
+    /** Pide un lote inmediato sin esperar al siguiente ciclo. */
+    public void despertar() {
+        pendientes.incrementAndGet();
+        if (loteProgramado.compareAndSet(false, true)) {
+            executor.execute(this::procesarPendientes);
+        }
+    }
+
+    public Map<String, Object> getEstadisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pendientes", pendientes.get());
+        stats.put("enviados", enviados.get());
+        stats.put("reintentos", reintentos.get());
+        stats.put("fallidos", fallidos.get());
+        stats.put("ultimoLote", ultimoLote != null ? ultimoLote.toString() : null);
+        return stats;
+    }
+
+    private void procesarPendientes() {
+        loteProgramado.set(false);
+        try {
+            List<Mensaje> lote;
+            do {
+                lote = outbox.reclamarPendientes(tamanoLote, maxIntentos);
+                if (!lote.isEmpty()) {
+                    enviarLote(lote);
+                }
+            } while (lote.size() == tamanoLote);
+
+            pendientes.set(outbox.countPendientes());
+            ultimoLote = LocalDateTime.now();
+        } catch (Exception e) {
+            // Nunca dejar que una excepción cancele la tarea programada
+            System.err.println("❌ Error al procesar cola de emails: " + e.getMessage());
+        }
+    }
+
+    private void enviarLote(List<Mensaje> lote) {
+        Session session = createSession();
+
+        try (Transport transport = session.getTransport("smtp")) {
+            transport.connect();
+
+            for (Mensaje mensaje : lote) {
+                try {
+                    Message message = crearMensaje(session, mensaje);
+                    transport.sendMessage(message, message.getAllRecipients());
+                    outbox.eliminar(mensaje.id());
+                    enviados.incrementAndGet();
+                    System.out.println("✅ Email enviado a: " + mensaje.destinatario());
+                } catch (IllegalArgumentException e) {
+                    // Usuario borrado o plantilla desconocida: reintentar no serviría
+                    descartar(mensaje, mensaje.intentos() + 1, e);
+                } catch (MessagingException | RuntimeException e) {
+                    registrarFallo(mensaje, e);
+                }
+            }
+
+        } catch (MessagingException e) {
+            // No se pudo conectar al servidor SMTP: todo el lote cuenta como intento fallido
+            System.err.println("❌ Error de conexión SMTP: " + e.getMessage());
+            for (Mensaje mensaje : lote) {
+                registrarFallo(mensaje, e);
+            }
+        }
+    }
+
+    private void registrarFallo(Mensaje mensaje, Exception e) {
+        int intentos = mensaje.intentos() + 1;
+        if (intentos >= maxIntentos) {
+            descartar(mensaje, intentos, e);
+            return;
+        }
+
+        long espera = Math.min(esperaBaseSegundos << Math.min(mensaje.intentos(), 20), ESPERA_MAXIMA_SEGUNDOS);
+        outbox.reprogramar(mensaje.id(), intentos, LocalDateTime.now().plusSeconds(espera), e.getMessage());
+        reintentos.incrementAndGet();
+        System.err.println("⚠️ Email a " + mensaje.destinatario() + " falló (intento " + intentos + "), reintento en "
+                + espera + " s");
+    }
+
+    private void descartar(Mensaje mensaje, int intentos, Exception e) {
+        outbox.marcarFallido(mensaje.id(), intentos, e.getMessage());
+        fallidos.incrementAndGet();
+        System.err.println("❌ Email a " + mensaje.destinatario() + " descartado tras " + intentos + " intentos: "
+                + e.getMessage());
+    }
+
+    private Message crearMensaje(Session session, Mensaje mensaje) throws MessagingException {
+        PlantillasEmail.Correo correo = plantillas.renderizar(mensaje);
+
+        Message message = new MimeMessage(session);
+        message.setFrom(new InternetAddress(fromEmail));
+        message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(mensaje.destinatario()));
+        message.setSubject(correo.asunto());
+        message.setContent(correo.html(), "text/html; charset=utf-8");
+        message.saveChanges();
+        return message;
+    }
+
+    private Session createSession() {
+        if (password == null) {
+            return Session.getInstance(properties);
+        }
+        return Session.getInstance(properties, new Authenticator() {
+            @Override
+            protected PasswordAuthentication getPasswordAuthentication() {
+                return new PasswordAuthentication(fromEmail, password);
+            }
+        });
+    }
+}
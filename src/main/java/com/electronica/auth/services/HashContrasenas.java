@@ -0,0 +1,109 @@
+package com.electronica.auth.services;
+
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Hash y verificación de contraseñas con BCrypt en un pool propio y acotado.
+ *
+ * BCrypt consume CPU a propósito; en un pico de logins no debe ocupar los hilos
+ * de Jetty ni todos los núcleos. Si el pool y su cola están llenos se lanza
+ * RejectedExecutionException y el endpoint responde 429.
+ */
+public class HashContrasenas {
+
+    private final int costo;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong rechazados = new AtomicLong();
+    private final AtomicLong rehashes = new AtomicLong();
+
+    public HashContrasenas(int costo, int hilos, int tamanoCola) {
+        if (costo < 4 || costo > 31) {
+            throw new IllegalArgumentException("BCRYPT_COST debe estar entre 4 y 31");
+        }
+        this.costo = costo;
+
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(hilos, hilos, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(tamanoCola),
+                r -> {
+                    Thread t = new Thread(r, "bcrypt-" + contador.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public String hash(String contrasena) {
+        return ejecutar(() -> BCrypt.hashpw(contrasena, BCrypt.gensalt(costo)));
+    }
+
+    public boolean verificar(String contrasena, String hash) {
+        return ejecutar(() -> BCrypt.checkpw(contrasena, hash));
+    }
+
+    /** true si el hash guardado se generó con un costo distinto al configurado. */
+    public boolean necesitaRehash(String hash) {
+        // Formato: $2a$10$<salt+hash>
+        try {
+            return Integer.parseInt(hash.substring(4, 6)) != costo;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Recalcula el hash con el costo actual en segundo plano y se lo entrega a
+     * {@code guardar}. Si el pool está ocupado no hace nada: se intentará en el
+     * siguiente login.
+     */
+    public void rehashEnSegundoPlano(String contrasena, Consumer<String> guardar) {
+        try {
+            executor.execute(() -> {
+                try {
+                    guardar.accept(BCrypt.hashpw(contrasena, BCrypt.gensalt(costo)));
+                    rehashes.incrementAndGet();
+                } catch (Exception e) {
+                    System.err.println("⚠️ Error al actualizar hash de contraseña: " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // No es urgente
+        }
+    }
+
+    public Map<String, Object> getEstadisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("costo", costo);
+        stats.put("activos", executor.getActiveCount());
+        stats.put("enCola", executor.getQueue().size());
+        stats.put("rechazados", rechazados.get());
+        stats.put("rehashes", rehashes.get());
+        return stats;
+    }
+
+    private <T> T ejecutar(Callable<T> tarea) {
+        try {
+            return executor.submit(tarea).get();
+        } catch (RejectedExecutionException e) {
+            rechazados.incrementAndGet();
+            throw e;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrumpido esperando BCrypt", e);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.electronica.auth.services;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logins fallidos en una ventana fija, por cuenta (IP + email) y por IP. Al llegar
+ * al máximo se responde 429 hasta que termina la ventana, sin consultar la BD ni
+ * calcular BCrypt.
+ *
+ * Un login correcto solo limpia la ventana de su cuenta: la de la IP sigue
+ * contando, así un atacante no puede reiniciarla entrando con una cuenta propia
+ * entre intento e intento.
+ */
+public class IntentosLogin {
+
+    // Tope de claves seguidas a la vez en cada mapa; las ventanas vencidas se purgan al llegar a él
+    private static final int MAX_SEGUIDOS = 50_000;
+
+    private final int maxIntentos;
+    private final int maxIntentosPorIp;
+    private final long ventanaMs;
+    private final Map<String, Ventana> porCuenta = new ConcurrentHashMap<>();
+    private final Map<String, Ventana> porIp = new ConcurrentHashMap<>();
+    private final AtomicLong bloqueos = new AtomicLong();
+
+    private record Ventana(long inicio, int fallos) {
+    }
+
+    public IntentosLogin(int maxIntentos, int maxIntentosPorIp, long ventanaSegundos) {
+        this.maxIntentos = maxIntentos;
+        this.maxIntentosPorIp = maxIntentosPorIp;
+        this.ventanaMs = ventanaSegundos * 1000;
+    }
+
+    /** Segundos que le faltan a la IP o a la cuenta para poder intentar de nuevo, o 0 si puede. */
+    public long segundosBloqueada(String ip, String email) {
+        long restante = Math.max(restante(porIp, ip, maxIntentosPorIp),
+                restante(porCuenta, cuenta(ip, email), maxIntentos));
+        if (restante <= 0) {
+            return 0;
+        }
+        bloqueos.incrementAndGet();
+        return (restante + 999) / 1000;
+    }
+
+    public void registrarFallo(String ip, String email) {
+        sumarFallo(porCuenta, cuenta(ip, email));
+        sumarFallo(porIp, ip);
+    }
+
+    public void registrarExito(String ip, String email) {
+        porCuenta.remove(cuenta(ip, email));
+    }
+
+    public Map<String, Object> getEstadisticas() {
+        return Map.of("ipsSeguidas", porIp.size(), "cuentasSeguidas", porCuenta.size(),
+                "bloqueos", bloqueos.get());
+    }
+
+    private long restante(Map<String, Ventana> mapa, String clave, int maximo) {
+        Ventana ventana = mapa.get(clave);
+        if (ventana == null || ventana.fallos() < maximo) {
+            return 0;
+        }
+        long restante = ventana.inicio() + ventanaMs - System.currentTimeMillis();
+        if (restante <= 0) {
+            mapa.remove(clave, ventana);
+            return 0;
+        }
+        return restante;
+    }
+
+    private void sumarFallo(Map<String, Ventana> mapa, String clave) {
+        long ahora = System.currentTimeMillis();
+        if (mapa.size() >= MAX_SEGUIDOS && !mapa.containsKey(clave)) {
+            mapa.values().removeIf(v -> v.inicio() + ventanaMs <= ahora);
+            if (mapa.size() >= MAX_SEGUIDOS) {
+                return;
+            }
+        }
+        mapa.compute(clave, (k, v) -> v == null || v.inicio() + ventanaMs <= ahora
+                ? new Ventana(ahora, 1)
+                : new Ventana(v.inicio(), v.fallos() + 1));
+    }
+
+    // El email se compara en minúsculas, igual que la collation de users.correo_electronico
+    private static String cuenta(String ip, String email) {
+        return ip + '\n' + (email != null ? email.toLowerCase(Locale.ROOT) : "");
+    }
+}
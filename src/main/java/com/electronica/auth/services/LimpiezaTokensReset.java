@@ -0,0 +1,46 @@
+package com.electronica.auth.services;
+
+import com.electronica.auth.repositories.ResetTokenRepository;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Borra periódicamente los tokens de recuperación vencidos, para que la tabla
+ * solo contenga solicitudes vigentes.
+ */
+public class LimpiezaTokensReset {
+
+    private final ResetTokenRepository repository;
+    private final int tamanoLote;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "reset-tokens-limpieza");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public LimpiezaTokensReset(ResetTokenRepository repository, int tamanoLote) {
+        this.repository = repository;
+        this.tamanoLote = tamanoLote;
+    }
+
+    public void iniciar(long minutos) {
+        executor.scheduleWithFixedDelay(this::limpiar, 1, minutos, TimeUnit.MINUTES);
+        System.out.println("🧹 Limpieza de tokens de recuperación cada " + minutos + " min (lotes de "
+                + tamanoLote + ")");
+    }
+
+    private void limpiar() {
+        try {
+            int borrados = repository.eliminarExpirados(tamanoLote);
+            if (borrados > 0) {
+                System.out.println("🧹 " + borrados + " tokens de recuperación vencidos eliminados");
+            }
+        } catch (Exception e) {
+            // Se reintenta en el siguiente ciclo
+            System.err.println("❌ Error al limpiar tokens de recuperación: " + e.getMessage());
+        }
+    }
+}
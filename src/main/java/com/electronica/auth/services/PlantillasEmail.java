@@ -0,0 +1,385 @@
+package com.electronica.auth.services;
+
+import com.electronica.auth.models.User;
+import com.electronica.auth.repositories.EmailOutboxRepository.Mensaje;
+import com.electronica.auth.repositories.ResetTokenRepository;
+import com.electronica.auth.repositories.UserRepository;
+import com.electronica.config.EnvConfig;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Arma el asunto y el HTML de cada correo de email_outbox justo antes de enviarlo.
+ *
+ * La cola solo guarda la plantilla y el id del usuario; nada secreto. Los enlaces
+ * para definir o restablecer la contraseña llevan un token que se genera aquí, en
+ * el momento del envío, y del que solo se guarda el hash (ResetTokenRepository).
+ * Si el envío se reintenta se genera otro token y el anterior deja de servir.
+ */
+public class PlantillasEmail {
+
+    public static final String BIENVENIDA = "BIENVENIDA";
+    public static final String RECUPERACION = "RECUPERACION";
+
+    private static final int HORAS_BIENVENIDA = 24;
+    private static final int HORAS_RECUPERACION = 1;
+
+    private final UserRepository userRepository;
+    private final ResetTokenRepository resetTokenRepository;
+
+    public record Correo(String asunto, String html) {
+    }
+
+    public PlantillasEmail(UserRepository userRepository, ResetTokenRepository resetTokenRepository) {
+        this.userRepository = userRepository;
+        this.resetTokenRepository = resetTokenRepository;
+    }
+
+    /**
+     * @throws IllegalArgumentException si el usuario ya no existe o la plantilla no
+     *                                  se conoce; reintentar no serviría
+     */
+    public Correo renderizar(Mensaje mensaje) {
+        User user = userRepository.findById(mensaje.userId())
+                .orElseThrow(() -> new IllegalArgumentException("El usuario " + mensaje.userId() + " ya no existe"));
+
+        return switch (mensaje.plantilla()) {
+            case BIENVENIDA -> bienvenida(user);
+            case RECUPERACION -> recuperacion(user);
+            default -> throw new IllegalArgumentException("Plantilla desconocida: " + mensaje.plantilla());
+        };
+    }
+
+    private String enlaceContrasena(User user, int horas) {
+        String token = UUID.randomUUID().toString();
+        resetTokenRepository.guardar(user.getId(), token, LocalDateTime.now().plusHours(horas));
+        return EnvConfig.getAppFrontendUrl() + "/reset-password?token=" + token;
+    }
+
+    private Correo bienvenida(User user) {
+        String subject = "🎉 Bienvenido a " + EnvConfig.getAppName();
+
+        String tipoEmoji = switch (user.getTipo().toUpperCase()) {
+            case "ADMIN" -> "👑 Administrador";
+            case "TECNICO" -> "🔧 Técnico";
+            case "RECEPCIONISTA" -> "📋 Recepcionista";
+            default -> "👤 Usuario";
+        };
+
+        String htmlContent = """
+            <!DOCTYPE html>
+            <html lang="es">
+            <head>
+                <meta charset="UTF-8">
+                <meta name="viewport" content="width=device-width, initial-scale=1.0">
+                <style>
+                    body {
+                        font-family: 'Segoe UI', Tahoma, Geneva, Verdana, sans-serif;
+                        line-height: 1.6;
+                        color: #333;
+                        max-width: 600px;
+                        margin: 0 auto;
+                        padding: 20px;
+                        background-color: #f4f4f4;
+                    }
+                    .container {
+                        background-color: white;
+                        border-radius: 10px;
+                        padding: 0;
+                        box-shadow: 0 4px 6px rgba(0,0,0,0.1);
+                        overflow: hidden;
+                    }
+                    .header {
+                        background: linear-gradient(135deg, #667eea 0%%, #764ba2 100%%);
+                        color: white;
+                        padding: 40px 30px;
+                        text-align: center;
+                    }
+                    .header h1 {
+                        margin: 0;
+                        font-size: 28px;
+                    }
+                    .content {
+                        padding: 30px;
+                    }
+                    .welcome-message {
+                        font-size: 18px;
+                        color: #667eea;
+                        font-weight: bold;
+                        margin-bottom: 20px;
+                    }
+                    .credentials-box {
+                        background-color: #f8f9fa;
+                        border-left: 4px solid #667eea;
+                        padding: 20px;
+                        margin: 20px 0;
+                        border-radius: 5px;
+                    }
+                    .credentials-box h3 {
+                        margin-top: 0;
+                        color: #667eea;
+                    }
+                    .credential-item {
+                        margin: 10px 0;
+                        padding: 10px;
+                        background-color: white;
+                        border-radius: 5px;
+                    }
+                    .credential-label {
+                        font-weight: bold;
+                        color: #666;
+                        font-size: 12px;
+                        text-transform: uppercase;
+                    }
+                    .credential-value {
+                        font-size: 16px;
+                        color: #333;
+                        font-family: 'Courier New', monospace;
+                        margin-top: 5px;
+                    }
+                    .role-badge {
+                        display: inline-block;
+                        background-color: #667eea;
+                        color: white;
+                        padding: 8px 15px;
+                        border-radius: 20px;
+                        font-size: 14px;
+                        margin: 10px 0;
+                    }
+                    .warning-box {
+                        background-color: #fff3cd;
+                        border-left: 4px solid #ffc107;
+                        padding: 15px;
+                        margin: 20px 0;
+                        border-radius: 5px;
+                    }
+                    .button {
+                        display: inline-block;
+                        padding: 15px 30px;
+                        background: linear-gradient(135deg, #667eea 0%%, #764ba2 100%%);
+                        color: white;
+                        text-decoration: none;
+                        border-radius: 5px;
+                        margin: 20px 0;
+                        font-weight: bold;
+                        text-align: center;
+                    }
+                    .footer {
+                        margin-top: 30px;
+                        padding-top: 20px;
+                        border-top: 1px solid #ddd;
+                        font-size: 12px;
+                        color: #666;
+                        text-align: center;
+                    }
+                    .security-tips {
+                        background-color: #e7f3ff;
+                        border-left: 4px solid #2196F3;
+                        padding: 15px;
+                        margin: 20px 0;
+                        border-radius: 5px;
+                    }
+                    .security-tips h4 {
+                        margin-top: 0;
+                        color: #2196F3;
+                    }
+                    .security-tips ul {
+                        margin: 10px 0;
+                        padding-left: 20px;
+                    }
+                    .security-tips li {
+                        margin: 5px 0;
+                    }
+                </style>
+            </head>
+            <body>
+                <div class="container">
+                    <div class="header">
+                        <h1>🎉 ¡Bienvenido!</h1>
+                        <p style="margin: 10px 0 0 0; font-size: 16px;">Tu cuenta ha sido creada exitosamente</p>
+                    </div>
+                        
+                    <div class="content">
+                        <p class="welcome-message">Hola %s,</p>
+                            
+                        <p>Nos complace darte la bienvenida a <strong>%s</strong>.</p>
+                            
+                        <p>Tu cuenta ha sido creada con el rol:</p>
+                        <div style="text-align: center;">
+                            <span class="role-badge">%s</span>
+                        </div>
+                            
+                        <div class="credentials-box">
+                            <h3>🔐 Tus Datos de Acceso</h3>
+                                
+                            <div class="credential-item">
+                                <div class="credential-label">📧 Correo Electrónico</div>
+                                <div class="credential-value">%s</div>
+                            </div>
+                                
+                            <div class="credential-item">
+                                <div class="credential-label">👤 Rol</div>
+                                <div class="credential-value">%s</div>
+                            </div>
+                        </div>
+                            
+                        <div class="warning-box">
+                            <strong>⚠️ IMPORTANTE:</strong>
+                            <ul style="margin: 10px 0; padding-left: 20px;">
+                                <li>Antes de iniciar sesión define tu contraseña con el siguiente botón</li>
+                                <li>Este enlace expirará en <strong>%d horas</strong> y solo puede usarse una vez</li>
+                                <li>No compartas tu contraseña con nadie</li>
+                            </ul>
+                        </div>
+                            
+                        <div style="text-align: center;">
+                            <a href="%s" class="button">Definir Contraseña</a>
+                        </div>
+                            
+                        <div class="security-tips">
+                            <h4>🛡️ Consejos de Seguridad</h4>
+                            <ul>
+                                <li>Usa una contraseña fuerte y única</li>
+                                <li>No uses la misma contraseña en otros sitios</li>
+                                <li>Cierra sesión cuando termines de usar el sistema</li>
+                                <li>Si sospechas que tu cuenta fue comprometida, cambia tu contraseña inmediatamente</li>
+                            </ul>
+                        </div>
+                            
+                        <p>Si tienes alguna pregunta o necesitas ayuda, no dudes en contactarnos.</p>
+                            
+                        <p>¡Gracias por unirte a nosotros!</p>
+                            
+                        <div class="footer">
+                            <p>Este es un correo automático, por favor no respondas.</p>
+                            <p>&copy; 2024 %s. Todos los derechos reservados.</p>
+                            <p style="margin-top: 10px; color: #999;">
+                                Si no solicitaste esta cuenta, por favor ignora este correo.
+                            </p>
+                        </div>
+                    </div>
+                </div>
+            </body>
+            </html>
+        """.formatted(
+                user.getNombreCompleto(),
+                EnvConfig.getAppName(),
+                tipoEmoji,
+                user.getCorreoElectronico(),
+                user.getTipo(),
+                HORAS_BIENVENIDA,
+                enlaceContrasena(user, HORAS_BIENVENIDA),
+                EnvConfig.getAppName()
+        );
+
+        return new Correo(subject, htmlContent);
+    }
+
+    private Correo recuperacion(User user) {
+        String subject = "🔐 Recuperación de Contraseña - " + EnvConfig.getAppName();
+        String resetLink = enlaceContrasena(user, HORAS_RECUPERACION);
+
+        String htmlContent = """
+            <!DOCTYPE html>
+            <html lang="es">
+            <head>
+                <meta charset="UTF-8">
+                <meta name="viewport" content="width=device-width, initial-scale=1.0">
+                <style>
+                    body {
+                        font-family: Arial, sans-serif;
+                        line-height: 1.6;
+                        color: #333;
+                        max-width: 600px;
+                        margin: 0 auto;
+                        padding: 20px;
+                    }
+                    .container {
+                        background-color: #f9f9f9;
+                        border-radius: 10px;
+                        padding: 30px;
+                        box-shadow: 0 2px 5px rgba(0,0,0,0.1);
+                    }
+                    .header {
+                        background-color: #dc3545;
+                        color: white;
+                        padding: 20px;
+                        text-align: center;
+                        border-radius: 10px 10px 0 0;
+                        margin: -30px -30px 20px -30px;
+                    }
+                    .button {
+                        display: inline-block;
+                        padding: 12px 30px;
+                        background-color: #dc3545;
+                        color: white !important;
+                        text-decoration: none;
+                        border-radius: 5px;
+                        margin: 20px 0;
+                        font-weight: bold;
+                    }
+                    .warning {
+                        background-color: #fff3cd;
+                        border-left: 4px solid #ffc107;
+                        padding: 10px;
+                        margin: 20px 0;
+                    }
+                    .footer {
+                        margin-top: 30px;
+                        padding-top: 20px;
+                        border-top: 1px solid #ddd;
+                        font-size: 12px;
+                        color: #666;
+                        text-align: center;
+                    }
+                </style>
+            </head>
+            <body>
+                <div class="container">
+                    <div class="header">
+                        <h1>🔐 Recuperación de Contraseña</h1>
+                    </div>
+                        
+                    <p>Hola,</p>
+                        
+                    <p>Has solicitado restablecer tu contraseña en <strong>%s</strong>.</p>
+                        
+                    <p>Haz clic en el siguiente botón para crear una nueva contraseña:</p>
+                        
+                    <div style="text-align: center;">
+                        <a href="%s" class="button">Restablecer Contraseña</a>
+                    </div>
+                        
+                    <p>O copia y pega este enlace en tu navegador:</p>
+                    <p style="word-break: break-all; background-color: #f0f0f0; padding: 10px; border-radius: 5px;">
+                        %s
+                    </p>
+                        
+                    <div class="warning">
+                        <strong>⚠️ Importante:</strong>
+                        <ul>
+                            <li>Este enlace expirará en <strong>%d hora(s)</strong></li>
+                            <li>Solo puedes usar este enlace una vez</li>
+                            <li>Si no solicitaste este cambio, ignora este correo</li>
+                        </ul>
+                    </div>
+                        
+                    <div class="footer">
+                        <p>Este es un correo automático, por favor no respondas.</p>
+                        <p>&copy; 2024 %s. Todos los derechos reservados.</p>
+                    </div>
+                </div>
+            </body>
+            </html>
+        """.formatted(
+                EnvConfig.getAppName(),
+                resetLink,
+                resetLink,
+                HORAS_RECUPERACION,
+                EnvConfig.getAppName()
+        );
+
+        return new Correo(subject, htmlContent);
+    }
+}
@@ -0,0 +1,48 @@
+package com.electronica.cliente.models;
+
+import com.electronica.config.Paginacion;
+
+/**
+ * Cursor y tamaño de página para el listado de clientes.
+ *
+ * El cursor es la pareja (nombre, id) del último cliente de la página anterior,
+ * codificada en base64 para que el frontend la trate como opaca.
+ */
+public class ClienteFiltro {
+    private String cursorNombre;
+    private String cursorId;
+    private int limite = Paginacion.LIMITE_DEFAULT;
+
+    // --- CURSOR ---
+    public static String codificarCursor(ClienteResumen ultimo) {
+        return Paginacion.codificarCursor(ultimo.nombre() + "|" + ultimo.id());
+    }
+
+    public void setCursor(String cursor) {
+        try {
+            String valor = Paginacion.decodificarCursor(cursor);
+            // El id (UUID) no contiene '|'; el nombre sí podría
+            int separador = valor.lastIndexOf('|');
+            this.cursorNombre = valor.substring(0, separador);
+            this.cursorId = valor.substring(separador + 1);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+    }
+
+    public String getCursorNombre() {
+        return cursorNombre;
+    }
+
+    public String getCursorId() {
+        return cursorId;
+    }
+
+    public int getLimite() {
+        return limite;
+    }
+
+    public void setLimite(int limite) {
+        this.limite = Paginacion.limitar(limite);
+    }
+}
@@ -0,0 +1,10 @@
+package com.electronica.cliente.models;
+
+/** Fila del listado de clientes (GET /api/clientes). */
+public record ClienteResumen(
+        String id,
+        String nombre,
+        String apellidos,
+        String numeroCelular,
+        int totalPedidos) {
+}
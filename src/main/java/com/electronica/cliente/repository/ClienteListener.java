@@ -0,0 +1,16 @@
+package com.electronica.cliente.repository;
+
+import com.electronica.cliente.models.Cliente;
+
+/**
+ * Recibe los cambios de clientes hechos a través del repositorio (lo usa el
+ * índice de búsqueda para mantenerse al día sin releer la tabla).
+ */
+public interface ClienteListener {
+
+    /** Alta, edición o reactivación; si deletedAt no es null el cliente está eliminado. */
+    void onGuardado(Cliente cliente);
+
+    /** Baja (soft delete o física) por número de celular. */
+    void onEliminado(String numeroCelular);
+}
@@ -1,23 +1,42 @@
 package com.electronica.cliente.repository;
 
 import com.electronica.cliente.models.Cliente;
+import com.electronica.cliente.models.ClienteFiltro;
+import com.electronica.cliente.models.ClienteResumen;
+import com.electronica.config.UnidadDeTrabajo;
 
 import javax.sql.DataSource;
+import java.io.UncheckedIOException;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public class ClienteRepository {
 
     private final DataSource dataSource;
+    // Listado paginado y en streaming: puede ir a la réplica (ver LecturasReplica)
+    private final DataSource lecturas;
+    private ClienteListener listener;
 
     public ClienteRepository(DataSource dataSource) {
+        this(dataSource, dataSource);
+    }
+
+    public ClienteRepository(DataSource dataSource, DataSource lecturas) {
         this.dataSource = dataSource;
+        this.lecturas = lecturas;
     }
 
     public DataSource getDataSource() {
         return this.dataSource;
     }
 
+    public void setListener(ClienteListener listener) {
+        this.listener = listener;
+    }
+
     // ==========================
     // BUSCAR POR NOMBRE Y NUMERO
     // ==========================
@@ -68,6 +87,9 @@ public class ClienteRepository {
             stmt.setString(4, cliente.getNumeroCelular());
 
             stmt.executeUpdate();
+            if (listener != null) {
+                UnidadDeTrabajo.despuesDeConfirmar(() -> listener.onGuardado(cliente));
+            }
             return cliente;
 
         } catch (SQLException e) {
@@ -75,6 +97,83 @@ public class ClienteRepository {
         }
     }
 
+    // ==========================
+    // LISTADO (activos, por nombre)
+    // ==========================
+    // total_pedidos es una columna mantenida por triggers (migration_total_pedidos.sql);
+    // el orden (nombre, id) lo da el índice idx_clientes_listado
+    private static final String SQL_LISTADO = "SELECT id, nombre, apellidos, numero_celular, total_pedidos " +
+            "FROM clientes WHERE deleted_at IS NULL ";
+
+    /**
+     * Página del listado ordenada por (nombre, id).
+     * Devuelve hasta limite + 1 filas para que el servicio sepa si hay otra página.
+     */
+    public List<ClienteResumen> findPage(ClienteFiltro filtro) {
+        StringBuilder sql = new StringBuilder(SQL_LISTADO);
+        if (filtro.getCursorId() != null) {
+            sql.append("AND (nombre > ? OR (nombre = ? AND id > ?)) ");
+        }
+        sql.append("ORDER BY nombre, id LIMIT ?");
+
+        List<ClienteResumen> clientes = new ArrayList<>();
+        try (Connection conn = lecturas.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+
+            int i = 1;
+            if (filtro.getCursorId() != null) {
+                stmt.setString(i++, filtro.getCursorNombre());
+                stmt.setString(i++, filtro.getCursorNombre());
+                stmt.setString(i++, filtro.getCursorId());
+            }
+            stmt.setInt(i, filtro.getLimite() + 1);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    clientes.add(mapResumen(rs));
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al listar clientes", e);
+        }
+        return clientes;
+    }
+
+    /** Todo el listado en modo streaming, entregando cada fila conforme llega de MySQL. */
+    public void forEachResumen(Consumer<ClienteResumen> consumer) {
+        try (Connection conn = lecturas.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(SQL_LISTADO + "ORDER BY nombre, id",
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    try {
+                        consumer.accept(mapResumen(rs));
+                    } catch (UncheckedIOException e) {
+                        // El cliente se desconectó: se cancela la consulta para que cerrar el
+                        // ResultSet no tenga que leer todas las filas restantes
+                        stmt.cancel();
+                        throw e;
+                    }
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al listar clientes", e);
+        }
+    }
+
+    private static ClienteResumen mapResumen(ResultSet rs) throws SQLException {
+        return new ClienteResumen(
+                rs.getString(1),
+                rs.getString(2),
+                rs.getString(3),
+                rs.getString(4),
+                rs.getInt(5));
+    }
+
     // ==========================
     // BUSCAR POR NUMERO
     // ==========================
@@ -162,6 +261,9 @@ public class ClienteRepository {
 
             stmt.executeUpdate();
             System.out.println("✅ Cliente actualizado correctamente.");
+            if (listener != null) {
+                UnidadDeTrabajo.despuesDeConfirmar(() -> listener.onGuardado(cliente));
+            }
 
         } catch (SQLException e) {
             throw new RuntimeException("Error al actualizar cliente", e);
@@ -179,6 +281,9 @@ public class ClienteRepository {
 
             stmt.setString(1, numero);
             stmt.executeUpdate();
+            if (listener != null) {
+                UnidadDeTrabajo.despuesDeConfirmar(() -> listener.onEliminado(numero));
+            }
 
         } catch (SQLException e) {
             throw new RuntimeException("Error al marcar cliente como eliminado", e);
@@ -196,6 +301,9 @@ public class ClienteRepository {
 
             stmt.setString(1, numero);
             stmt.executeUpdate();
+            if (listener != null) {
+                UnidadDeTrabajo.despuesDeConfirmar(() -> listener.onEliminado(numero));
+            }
 
         } catch (SQLException e) {
             throw new RuntimeException("Error al eliminar cliente", e);
@@ -214,6 +322,33 @@ public class ClienteRepository {
         } catch (SQLException e) {
             throw new RuntimeException("Error al reactivar cliente", e);
         }
+        if (listener != null) {
+            UnidadDeTrabajo.despuesDeConfirmar(() -> findById(id).ifPresent(listener::onGuardado));
+        }
+    }
+
+    // ==========================
+    // RECORRER ACTIVOS (para construir el índice de búsqueda)
+    // ==========================
+    public void forEachActivo(Consumer<Cliente> consumer) {
+        String sql = "SELECT id, nombre, apellidos, numero_celular FROM clientes WHERE deleted_at IS NULL";
+
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql);
+                ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                consumer.accept(new Cliente(
+                        rs.getString(1),
+                        rs.getString(2),
+                        rs.getString(3),
+                        rs.getString(4),
+                        null));
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al recorrer clientes", e);
+        }
     }
 
     // ==========================
@@ -14,6 +14,8 @@ public class ClienteRoutes {
         app.post("/api/clientes", service::create);
         app.get("/api/clientes", service::getAll);
         app.get("/api/clientes/id/{id}", service::getById);
+        // Antes de /{numero} para que "buscar" no se tome como número
+        app.get("/api/clientes/buscar", service::buscar);
         app.get("/api/clientes/{numero}", service::getByNumero);
         app.put("/api/clientes/{numero}", service::update);
         app.delete("/api/clientes/{numero}", service::delete);
@@ -0,0 +1,408 @@
+package com.electronica.cliente.services;
+
+import com.electronica.cliente.models.Cliente;
+import com.electronica.cliente.repository.ClienteListener;
+import com.electronica.cliente.repository.ClienteRepository;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Índice en memoria de los clientes activos para la búsqueda por nombre, apellidos
+ * y teléfono (GET /api/clientes/buscar), sin consultar la BD en cada tecla.
+ *
+ * - Nombres: cada palabra normalizada (minúsculas, sin acentos) se busca por
+ *   prefijo en un TreeMap; si no hay ninguna y el término tiene 4+ letras se
+ *   aceptan palabras a 1 error de distancia (2 desde 8 letras), encontradas con
+ *   un índice de bigramas sobre las palabras distintas.
+ * - Teléfono: prefijo o terminación de los dígitos (3+ dígitos).
+ *
+ * Varios términos se combinan con AND. Se carga completo al arrancar y se mantiene
+ * al día con los cambios del repositorio (ClienteListener).
+ */
+public class ClienteIndice implements ClienteListener {
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+
+    private static final int PUNTOS_EXACTO = 4;
+    private static final int PUNTOS_PREFIJO = 3;
+    private static final int PUNTOS_UN_ERROR = 2;
+    private static final int PUNTOS_DOS_ERRORES = 1;
+
+    /** Cliente tal como se devuelve en la búsqueda, con sus palabras ya normalizadas. */
+    public record Entrada(String id, String nombre, String apellidos, String numeroCelular,
+            String[] palabras, String digitos) {
+    }
+
+    private final ClienteRepository repository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Entrada> porId = new HashMap<>();
+    private final Map<String, String> idPorNumero = new HashMap<>();
+    private final TreeMap<String, Set<String>> porPalabra = new TreeMap<>();
+    private final TreeMap<String, Set<String>> porTelefono = new TreeMap<>();
+    private final TreeMap<String, Set<String>> porTelefonoInverso = new TreeMap<>();
+    private final Map<String, Set<String>> palabrasPorBigrama = new HashMap<>();
+
+    public ClienteIndice(ClienteRepository repository) {
+        this.repository = repository;
+    }
+
+    /** Vuelve a leer todos los clientes activos; usar al arrancar o tras cargas masivas. */
+    public void reconstruir() {
+        long inicio = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            porId.clear();
+            idPorNumero.clear();
+            porPalabra.clear();
+            porTelefono.clear();
+            porTelefonoInverso.clear();
+            palabrasPorBigrama.clear();
+            repository.forEachActivo(this::agregar);
+
+            System.out.println("🔎 Índice de clientes: " + porId.size() + " clientes, " + porPalabra.size()
+                    + " palabras (" + (System.currentTimeMillis() - inicio) + " ms)");
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onGuardado(Cliente cliente) {
+        lock.writeLock().lock();
+        try {
+            quitar(cliente.getId());
+            if (cliente.getDeletedAt() == null) {
+                agregar(cliente);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onEliminado(String numeroCelular) {
+        lock.writeLock().lock();
+        try {
+            String id = idPorNumero.get(numeroCelular);
+            if (id != null) {
+                quitar(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return porId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Hasta {@code limite} clientes que coinciden con todos los términos, mejor puntuados primero. */
+    public List<Entrada> buscar(String consulta, int limite) {
+        List<String> terminos = terminos(consulta);
+        if (terminos.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            // Cada término solo puntúa a los clientes que ya coincidieron con los anteriores (AND)
+            Map<String, Integer> puntos = null;
+            for (String termino : terminos) {
+                puntos = esNumero(termino)
+                        ? buscarTelefono(termino, puntos)
+                        : buscarPalabra(termino, puntos);
+                if (puntos.isEmpty()) {
+                    return List.of();
+                }
+            }
+            return mejores(puntos, limite);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---- Búsqueda ----
+
+    private Map<String, Integer> buscarPalabra(String termino, Map<String, Integer> previos) {
+        Map<String, Integer> puntos = new HashMap<>();
+        boolean hayPalabras = false;
+
+        for (Map.Entry<String, Set<String>> e : porPalabra.subMap(termino, termino + Character.MAX_VALUE).entrySet()) {
+            int valor = e.getKey().length() == termino.length() ? PUNTOS_EXACTO : PUNTOS_PREFIJO;
+            sumar(puntos, e.getValue(), valor, previos);
+            hayPalabras = true;
+        }
+
+        // Tolerancia a errores solo si la palabra no aparece tal cual ni como prefijo
+        int maxErrores = termino.length() >= 8 ? 2 : termino.length() >= 4 ? 1 : 0;
+        if (!hayPalabras && maxErrores > 0) {
+            for (String palabra : candidatasParecidas(termino, maxErrores)) {
+                int distancia = distancia(termino, palabra, maxErrores);
+                if (distancia > 0 && distancia <= maxErrores) {
+                    sumar(puntos, porPalabra.get(palabra), distancia == 1 ? PUNTOS_UN_ERROR : PUNTOS_DOS_ERRORES,
+                            previos);
+                }
+            }
+        }
+        return sumarPrevios(puntos, previos);
+    }
+
+    private Map<String, Integer> buscarTelefono(String digitos, Map<String, Integer> previos) {
+        Map<String, Integer> puntos = new HashMap<>();
+        if (digitos.length() < 3) {
+            return puntos;
+        }
+        for (Map.Entry<String, Set<String>> e : porTelefono.subMap(digitos, digitos + Character.MAX_VALUE).entrySet()) {
+            sumar(puntos, e.getValue(), e.getKey().length() == digitos.length() ? PUNTOS_EXACTO : PUNTOS_PREFIJO,
+                    previos);
+        }
+        // Terminación: "los últimos 4 del celular"
+        String inverso = new StringBuilder(digitos).reverse().toString();
+        for (Set<String> ids : porTelefonoInverso.subMap(inverso, inverso + Character.MAX_VALUE).values()) {
+            sumar(puntos, ids, PUNTOS_PREFIJO, previos);
+        }
+        return sumarPrevios(puntos, previos);
+    }
+
+    /**
+     * Palabras distintas con suficientes bigramas en común para estar a maxErrores
+     * de distancia: cada error cambia a lo más 3 bigramas (2 si no es transposición).
+     */
+    private List<String> candidatasParecidas(String termino, int maxErrores) {
+        List<String> bigramasTermino = bigramas(termino);
+        int minimoComun = Math.max(1, bigramasTermino.size() - 3 * maxErrores);
+
+        Map<String, Integer> enComun = new HashMap<>();
+        for (String bigrama : new HashSet<>(bigramasTermino)) {
+            Set<String> palabras = palabrasPorBigrama.get(bigrama);
+            if (palabras == null) {
+                continue;
+            }
+            for (String palabra : palabras) {
+                if (Math.abs(palabra.length() - termino.length()) <= maxErrores) {
+                    enComun.merge(palabra, 1, Integer::sum);
+                }
+            }
+        }
+
+        List<String> candidatas = new ArrayList<>();
+        for (Map.Entry<String, Integer> e : enComun.entrySet()) {
+            if (e.getValue() >= minimoComun) {
+                candidatas.add(e.getKey());
+            }
+        }
+        return candidatas;
+    }
+
+    // Mejor puntuación del término para cada cliente (entre los previos, si los hay)
+    private static void sumar(Map<String, Integer> puntos, Set<String> ids, int valor, Map<String, Integer> previos) {
+        for (String id : ids) {
+            if (previos == null || previos.containsKey(id)) {
+                puntos.merge(id, valor, Math::max);
+            }
+        }
+    }
+
+    private static Map<String, Integer> sumarPrevios(Map<String, Integer> puntos, Map<String, Integer> previos) {
+        if (previos != null) {
+            puntos.replaceAll((id, valor) -> valor + previos.get(id));
+        }
+        return puntos;
+    }
+
+    // Top-K con un heap acotado: no se ordenan todos los candidatos
+    private List<Entrada> mejores(Map<String, Integer> puntos, int limite) {
+        Comparator<Map.Entry<String, Integer>> orden = Map.Entry.<String, Integer>comparingByValue()
+                .thenComparing(e -> nombreCompleto(porId.get(e.getKey())), Comparator.reverseOrder());
+
+        PriorityQueue<Map.Entry<String, Integer>> heap = new PriorityQueue<>(limite + 1, orden);
+        for (Map.Entry<String, Integer> e : puntos.entrySet()) {
+            heap.offer(e);
+            if (heap.size() > limite) {
+                heap.poll();
+            }
+        }
+
+        List<Entrada> resultado = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            resultado.add(porId.get(heap.poll().getKey()));
+        }
+        Collections.reverse(resultado);
+        return resultado;
+    }
+
+    private static String nombreCompleto(Entrada entrada) {
+        return entrada.nombre() + " " + entrada.apellidos();
+    }
+
+    // ---- Mantenimiento (con el write lock tomado) ----
+
+    private void agregar(Cliente cliente) {
+        String[] palabras = palabras(cliente.getNombre() + " " + cliente.getApellidos());
+        String digitos = soloDigitos(cliente.getNumeroCelular());
+        Entrada entrada = new Entrada(cliente.getId(), cliente.getNombre(), cliente.getApellidos(),
+                cliente.getNumeroCelular(), palabras, digitos);
+
+        porId.put(entrada.id(), entrada);
+        idPorNumero.put(entrada.numeroCelular(), entrada.id());
+        for (String palabra : palabras) {
+            Set<String> ids = porPalabra.computeIfAbsent(palabra, k -> new HashSet<>(2));
+            if (ids.isEmpty()) {
+                for (String bigrama : bigramas(palabra)) {
+                    palabrasPorBigrama.computeIfAbsent(bigrama, k -> new HashSet<>()).add(palabra);
+                }
+            }
+            ids.add(entrada.id());
+        }
+        if (!digitos.isEmpty()) {
+            porTelefono.computeIfAbsent(digitos, k -> new HashSet<>(2)).add(entrada.id());
+            porTelefonoInverso.computeIfAbsent(new StringBuilder(digitos).reverse().toString(),
+                    k -> new HashSet<>(2)).add(entrada.id());
+        }
+    }
+
+    private void quitar(String id) {
+        Entrada entrada = porId.remove(id);
+        if (entrada == null) {
+            return;
+        }
+        idPorNumero.remove(entrada.numeroCelular(), id);
+        for (String palabra : entrada.palabras()) {
+            Set<String> ids = porPalabra.get(palabra);
+            if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                porPalabra.remove(palabra);
+                for (String bigrama : bigramas(palabra)) {
+                    Set<String> palabras = palabrasPorBigrama.get(bigrama);
+                    if (palabras != null && palabras.remove(palabra) && palabras.isEmpty()) {
+                        palabrasPorBigrama.remove(bigrama);
+                    }
+                }
+            }
+        }
+        quitarDe(porTelefono, entrada.digitos(), id);
+        quitarDe(porTelefonoInverso, new StringBuilder(entrada.digitos()).reverse().toString(), id);
+    }
+
+    private static void quitarDe(Map<String, Set<String>> mapa, String llave, String id) {
+        Set<String> ids = mapa.get(llave);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            mapa.remove(llave);
+        }
+    }
+
+    // ---- Normalización ----
+
+    private static List<String> terminos(String consulta) {
+        if (consulta == null || consulta.isBlank()) {
+            return List.of();
+        }
+        // "961 123 4567" o "961-123-4567" se toma como un solo número
+        String digitos = soloDigitos(consulta);
+        if (!digitos.isEmpty() && consulta.replaceAll("[\\d\\s()+-]", "").isEmpty()) {
+            return List.of(digitos);
+        }
+        return new ArrayList<>(new LinkedHashSet<>(Arrays.asList(palabras(consulta))));
+    }
+
+    // Minúsculas, sin acentos ni tildes ("Núñez" -> "nunez"): se busca como se escribe
+    // en el teclado. Todo lo que no es letra o dígito separa palabras.
+    private static String[] palabras(String texto) {
+        List<String> palabras = new ArrayList<>(4);
+        StringBuilder sb = new StringBuilder(texto.length());
+        for (int i = 0; i <= texto.length(); i++) {
+            char c = i < texto.length() ? texto.charAt(i) : ' ';
+            if (c >= 128) {
+                // Solo los caracteres no ASCII pasan por Normalizer (es lo caro al reconstruir)
+                String base = MARCAS.matcher(Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD)).replaceAll("");
+                c = base.length() == 1 ? base.charAt(0) : ' ';
+            }
+            if (c >= 'A' && c <= 'Z') {
+                c = (char) (c + ('a' - 'A'));
+            }
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                sb.append(c);
+            } else if (sb.length() > 0) {
+                palabras.add(sb.toString());
+                sb.setLength(0);
+            }
+        }
+        return palabras.toArray(new String[0]);
+    }
+
+    private static String soloDigitos(String texto) {
+        StringBuilder sb = new StringBuilder(texto.length());
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (Character.isDigit(c)) {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean esNumero(String termino) {
+        for (int i = 0; i < termino.length(); i++) {
+            if (termino.charAt(i) < '0' || termino.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Bigramas con marcas de inicio y fin: "ana" -> ^a, an, na, a$
+    private static List<String> bigramas(String palabra) {
+        String marcada = "^" + palabra + "$";
+        List<String> bigramas = new ArrayList<>(marcada.length() - 1);
+        for (int i = 0; i + 2 <= marcada.length(); i++) {
+            bigramas.add(marcada.substring(i, i + 2));
+        }
+        return bigramas;
+    }
+
+    /**
+     * Distancia de edición (inserción, borrado, sustitución y transposición de
+     * letras vecinas); devuelve max + 1 en cuanto se sabe que la supera.
+     */
+    private static int distancia(String a, String b, int max) {
+        int n = a.length();
+        int m = b.length();
+        int[] anterior2 = new int[m + 1];
+        int[] anterior = new int[m + 1];
+        int[] actual = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            anterior[j] = j;
+        }
+
+        for (int i = 1; i <= n; i++) {
+            actual[0] = i;
+            int minimoFila = actual[0];
+            for (int j = 1; j <= m; j++) {
+                int costo = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int valor = Math.min(Math.min(anterior[j] + 1, actual[j - 1] + 1), anterior[j - 1] + costo);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    valor = Math.min(valor, anterior2[j - 2] + 1);
+                }
+                actual[j] = valor;
+                minimoFila = Math.min(minimoFila, valor);
+            }
+            if (minimoFila > max) {
+                return max + 1;
+            }
+            int[] temp = anterior2;
+            anterior2 = anterior;
+            anterior = actual;
+            actual = temp;
+        }
+        return Math.min(anterior[m], max + 1);
+    }
+}
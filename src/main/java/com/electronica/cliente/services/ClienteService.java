@@ -1,17 +1,25 @@
 package com.electronica.cliente.services;
 
 import com.electronica.cliente.models.Cliente;
+import com.electronica.cliente.models.ClienteFiltro;
+import com.electronica.cliente.models.ClienteResumen;
 import com.electronica.cliente.repository.ClienteRepository;
+import com.electronica.config.JsonStreaming;
 import io.javalin.http.Context;
 
 import java.util.*;
 
 public class ClienteService {
 
+    private static final int LIMITE_BUSQUEDA = 10;
+    private static final int LIMITE_BUSQUEDA_MAX = 50;
+
     private final ClienteRepository repository;
+    private final ClienteIndice indice;
 
-    public ClienteService(ClienteRepository repository) {
+    public ClienteService(ClienteRepository repository, ClienteIndice indice) {
         this.repository = repository;
+        this.indice = indice;
     }
 
     // ==========================
@@ -76,38 +84,42 @@ public class ClienteService {
     // ==========================
     // GET ALL
     // ==========================
+    // GET /api/clientes?cursor=&limite= (página de clientes activos por nombre)
+    // Con ?stream=true se envía todo el listado en streaming, sin paginar.
     public void getAll(Context ctx) {
-        try (var conn = repository.getDataSource().getConnection()) {
-
-            // Query con JOIN para obtener el total de pedidos por cliente
-            // Filtra clientes eliminados (deleted_at IS NULL)
-            String sql = "SELECT c.*, COUNT(s.id) as total_pedidos " +
-                    "FROM clientes c " +
-                    "LEFT JOIN equipos e ON c.id = e.cliente_id " +
-                    "LEFT JOIN servicios s ON e.id = s.equipo_id " +
-                    "WHERE c.deleted_at IS NULL " +
-                    "GROUP BY c.id, c.nombre, c.apellidos, c.numero_celular " +
-                    "ORDER BY c.nombre";
-
-            var stmt = conn.prepareStatement(sql);
-            var rs = stmt.executeQuery();
-
-            List<Map<String, Object>> lista = new ArrayList<>();
-
-            while (rs.next()) {
-                Map<String, Object> clienteMap = new HashMap<>();
-                clienteMap.put("id", rs.getString("id"));
-                clienteMap.put("nombre", rs.getString("nombre"));
-                clienteMap.put("apellidos", rs.getString("apellidos"));
-                clienteMap.put("numeroCelular", rs.getString("numero_celular"));
-                clienteMap.put("totalPedidos", rs.getInt("total_pedidos"));
-                lista.add(clienteMap);
+        if (JsonStreaming.solicitado(ctx)) {
+            JsonStreaming.lista(ctx, gen -> repository.forEachResumen(
+                    cliente -> JsonStreaming.escribir(gen, cliente)));
+            return;
+        }
+
+        try {
+            ClienteFiltro filtro = new ClienteFiltro();
+            String cursor = ctx.queryParam("cursor");
+            if (cursor != null && !cursor.isEmpty()) {
+                filtro.setCursor(cursor);
+            }
+            String limite = ctx.queryParam("limite");
+            if (limite != null) {
+                filtro.setLimite(Integer.parseInt(limite));
             }
 
-            ctx.json(Map.of(
-                    "success", true,
-                    "data", lista));
+            List<ClienteResumen> clientes = listar(filtro);
 
+            String nextCursor = null;
+            if (clientes.size() > filtro.getLimite()) {
+                clientes = clientes.subList(0, filtro.getLimite());
+                nextCursor = ClienteFiltro.codificarCursor(clientes.get(clientes.size() - 1));
+            }
+
+            Map<String, Object> respuesta = new LinkedHashMap<>();
+            respuesta.put("success", true);
+            respuesta.put("data", clientes);
+            respuesta.put("nextCursor", nextCursor);
+            ctx.json(respuesta);
+
+        } catch (IllegalArgumentException e) {
+            ctx.status(400).json(Map.of("success", false, "message", "Parámetros inválidos: " + e.getMessage()));
         } catch (Exception e) {
             e.printStackTrace();
             ctx.status(500).json(Map.of(
@@ -116,6 +128,51 @@ public class ClienteService {
         }
     }
 
+    /**
+     * Página de clientes activos con su total de pedidos (hasta limite + 1 filas),
+     * sin depender del Context (también lo usan los benchmarks).
+     */
+    public List<ClienteResumen> listar(ClienteFiltro filtro) {
+        return repository.findPage(filtro);
+    }
+
+    // ==========================
+    // BUSCAR (nombre, apellidos o teléfono)
+    // ==========================
+    // GET /api/clientes/buscar?q=juan per&limite=10
+    // Responde desde el índice en memoria; no consulta la BD
+    public void buscar(Context ctx) {
+        String q = ctx.queryParam("q");
+        if (q == null || q.isBlank()) {
+            ctx.status(400).json(Map.of("success", false, "message", "El parámetro q es obligatorio"));
+            return;
+        }
+
+        int limite = LIMITE_BUSQUEDA;
+        String limiteParam = ctx.queryParam("limite");
+        if (limiteParam != null) {
+            try {
+                limite = Math.max(1, Math.min(Integer.parseInt(limiteParam), LIMITE_BUSQUEDA_MAX));
+            } catch (NumberFormatException e) {
+                ctx.status(400).json(Map.of("success", false, "message", "limite inválido"));
+                return;
+            }
+        }
+
+        List<Map<String, Object>> resultados = new ArrayList<>();
+        for (ClienteIndice.Entrada e : indice.buscar(q, limite)) {
+            resultados.add(Map.of(
+                    "id", e.id(),
+                    "nombre", e.nombre(),
+                    "apellidos", e.apellidos(),
+                    "numeroCelular", e.numeroCelular()));
+        }
+
+        ctx.json(Map.of(
+                "success", true,
+                "data", resultados));
+    }
+
     // ==========================
     // GET BY ID
     // ==========================
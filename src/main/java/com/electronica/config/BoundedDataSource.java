@@ -0,0 +1,141 @@
+package com.electronica.config;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * DataSource que limita cuántas conexiones pueden estar en uso a la vez.
+ *
+ * Con hilos virtuales puede haber miles de peticiones concurrentes; el semáforo
+ * (justo, FIFO) las forma antes de llegar al pool de Hikari y falla rápido si la
+ * espera supera el timeout, en lugar de acumular hilos bloqueados en el pool.
+ * El permiso se libera al cerrar la conexión.
+ */
+public class BoundedDataSource implements DataSource {
+
+    private final DataSource delegate;
+    private final Semaphore permisos;
+    private final long timeoutMs;
+
+    public BoundedDataSource(DataSource delegate, int maxConcurrentes, long timeoutMs) {
+        this.delegate = delegate;
+        this.permisos = new Semaphore(maxConcurrentes, true);
+        this.timeoutMs = timeoutMs;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        adquirir();
+        try {
+            return envolver(delegate.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        adquirir();
+        try {
+            return envolver(delegate.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    /** Peticiones esperando turno para usar la BD. */
+    public int getEnEspera() {
+        return permisos.getQueueLength();
+    }
+
+    public int getDisponibles() {
+        return permisos.availablePermits();
+    }
+
+    private void adquirir() throws SQLException {
+        try {
+            if (!permisos.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException(
+                        "Tiempo de espera agotado (" + timeoutMs + " ms) esperando turno para la base de datos");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrumpido esperando turno para la base de datos", e);
+        }
+    }
+
+    private Connection envolver(Connection conexion) {
+        AtomicBoolean liberado = new AtomicBoolean(false);
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                        try {
+                            conexion.close();
+                        } finally {
+                            if (liberado.compareAndSet(false, true)) {
+                                permisos.release();
+                            }
+                        }
+                        return null;
+                    }
+                    try {
+                        return method.invoke(conexion, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    // ---- Delegación ----
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return delegate.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || delegate.isWrapperFor(iface);
+    }
+}
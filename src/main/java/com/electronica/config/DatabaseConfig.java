@@ -1,5 +1,7 @@
 package com.electronica.config;
 
+import com.electronica.metrics.DataSourceMedido;
+import com.electronica.metrics.Metricas;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 
@@ -7,21 +9,69 @@ import javax.sql.DataSource;
 
 public class DatabaseConfig {
 
-    public static DataSource createDataSource() {
+    public static DataSource createDataSource(Metricas metricas) {
+        PerfilPool perfil = PerfilPool.desdeEnv();
+        HikariConfig config = configurarPool(perfil, "electronica-" + perfil.nombre(),
+                EnvConfig.getDbUrl(), EnvConfig.getDbUsername(), EnvConfig.getDbPassword());
+
+        // Métricas del pool (activas, en espera, tiempo de adquisición) para /api/metrics
+        config.setMetricsTrackerFactory(metricas.hikariTrackerFactory());
+
+        // Una muestra de las consultas se mide y se atribuye al método del repositorio que la ejecuta
+        DataSource dataSource = new DataSourceMedido(new HikariDataSource(config), metricas,
+                EnvConfig.getDbQuerySampleEvery());
+
+        // Con hilos virtuales se limita el trabajo concurrente en BD al tamaño del pool
+        if (EnvConfig.isVirtualThreadsEnabled()) {
+            BoundedDataSource bounded = new BoundedDataSource(dataSource, EnvConfig.getDbMaxConcurrency(),
+                    perfil.connectionTimeoutMs());
+            metricas.setEnEsperaBd(bounded::getEnEspera);
+            return bounded;
+        }
+        return dataSource;
+    }
+
+    /**
+     * Pool de la réplica de lectura (DB_REPLICA_URL), o null si no hay réplica.
+     * Usa el mismo perfil que la primaria; sus consultas también se miden, pero
+     * las métricas de Hikari en /api/metrics son solo de la primaria.
+     */
+    public static DataSource createReplicaDataSource(Metricas metricas) {
+        String url = EnvConfig.getDbReplicaUrl();
+        if (url.isEmpty()) {
+            return null;
+        }
+        PerfilPool perfil = PerfilPool.desdeEnv();
+        HikariConfig config = configurarPool(perfil, "electronica-replica-" + perfil.nombre(),
+                url, EnvConfig.getDbReplicaUsername(), EnvConfig.getDbReplicaPassword());
+        config.setReadOnly(true);
+        // Timeout propio y corto: una réplica caída no debe retener la petición lo que tarda el de la primaria
+        config.setConnectionTimeout(EnvConfig.getDbReplicaConnectionTimeoutMs());
+        // Si la réplica no está disponible al arrancar se usa la primaria hasta que vuelva
+        config.setInitializationFailTimeout(-1);
+        return new DataSourceMedido(new HikariDataSource(config), metricas, EnvConfig.getDbQuerySampleEvery());
+    }
+
+    private static HikariConfig configurarPool(PerfilPool perfil, String nombrePool, String url, String usuario,
+            String contrasena) {
         HikariConfig config = new HikariConfig();
+        config.setPoolName(nombrePool);
 
         // Configuración desde variables de entorno
-        config.setJdbcUrl(EnvConfig.getDbUrl());
-        config.setUsername(EnvConfig.getDbUsername());
-        config.setPassword(EnvConfig.getDbPassword());
+        config.setJdbcUrl(url);
+        config.setUsername(usuario);
+        config.setPassword(contrasena);
         config.setDriverClassName("com.mysql.cj.jdbc.Driver");
 
-        // Configuraciones de pool
-        config.setMaximumPoolSize(10);
-        config.setMinimumIdle(2);
-        config.setConnectionTimeout(30000);
-        config.setIdleTimeout(600000);
-        config.setMaxLifetime(1800000);
+        // Configuraciones de pool (DB_POOL_PROFILE)
+        config.setMaximumPoolSize(perfil.maxPoolSize());
+        config.setMinimumIdle(perfil.minIdle());
+        config.setConnectionTimeout(perfil.connectionTimeoutMs());
+        config.setIdleTimeout(perfil.idleTimeoutMs());
+        config.setMaxLifetime(perfil.maxLifetimeMs());
+        // Conexiones retenidas demasiado tiempo (las exportaciones largas también avisan aquí)
+        config.setLeakDetectionThreshold(perfil.leakDetectionMs());
+        config.setRegisterMbeans(true);
 
         // Configuraciones adicionales para MySQL
         config.addDataSourceProperty("cachePrepStmts", "true");
@@ -34,7 +84,6 @@ public class DatabaseConfig {
         config.addDataSourceProperty("cacheServerConfiguration", "true");
         config.addDataSourceProperty("elideSetAutoCommits", "true");
         config.addDataSourceProperty("maintainTimeStats", "false");
-
-        return new HikariDataSource(config);
+        return config;
     }
 }
\ No newline at end of file
@@ -23,6 +23,13 @@ public class EnvConfig {
         return Integer.parseInt(get("SERVER_PORT", "7000"));
     }
 
+    /**
+     * Ejecuta los handlers en hilos virtuales (Java 21) en lugar del pool de Jetty.
+     */
+    public static boolean isVirtualThreadsEnabled() {
+        return Boolean.parseBoolean(get("SERVER_VIRTUAL_THREADS", "false"));
+    }
+
     // ---- BASE DE DATOS ----
     public static String getDbUrl() {
         return get("DB_URL", "jdbc:mysql://localhost:3306/electronica_domestica");
@@ -36,6 +43,83 @@ public class EnvConfig {
         return get("DB_PASSWORD", "");
     }
 
+    /**
+     * Máximo de peticiones usando la BD a la vez en modo hilos virtuales.
+     * Por defecto igual al tamaño del pool de conexiones.
+     */
+    public static int getDbMaxConcurrency() {
+        return Integer.parseInt(get("DB_MAX_CONCURRENCY", String.valueOf(PerfilPool.desdeEnv().maxPoolSize())));
+    }
+
+    /** Perfil del pool de conexiones: small (sucursal), medium o large (servidor central). */
+    public static String getDbPoolProfile() {
+        return get("DB_POOL_PROFILE", "medium");
+    }
+
+    // Los siguientes sobrescriben el valor del perfil
+    public static int getDbPoolMaxSize(int porDefecto) {
+        return Integer.parseInt(get("DB_POOL_MAX_SIZE", String.valueOf(porDefecto)));
+    }
+
+    public static int getDbPoolMinIdle(int porDefecto) {
+        return Integer.parseInt(get("DB_POOL_MIN_IDLE", String.valueOf(porDefecto)));
+    }
+
+    public static long getDbPoolConnectionTimeoutMs(long porDefecto) {
+        return Long.parseLong(get("DB_POOL_CONNECTION_TIMEOUT_MS", String.valueOf(porDefecto)));
+    }
+
+    /** Avisa en el log si una conexión se retiene más de este tiempo (0 lo desactiva). */
+    public static long getDbPoolLeakDetectionMs(long porDefecto) {
+        return Long.parseLong(get("DB_POOL_LEAK_DETECTION_MS", String.valueOf(porDefecto)));
+    }
+
+    /** Se mide una de cada N conexiones en /api/metrics (1 = todas). */
+    public static int getDbQuerySampleEvery() {
+        return Integer.parseInt(get("DB_QUERY_SAMPLE_EVERY", "10"));
+    }
+
+    // ---- RÉPLICA DE LECTURA ----
+    /** URL JDBC de la réplica para listados, exportación y estadísticas; vacío = sin réplica. */
+    public static String getDbReplicaUrl() {
+        return get("DB_REPLICA_URL", "");
+    }
+
+    public static String getDbReplicaUsername() {
+        return get("DB_REPLICA_USERNAME", getDbUsername());
+    }
+
+    public static String getDbReplicaPassword() {
+        return get("DB_REPLICA_PASSWORD", getDbPassword());
+    }
+
+    /** Con más retraso que esto, las lecturas vuelven a la primaria. */
+    public static long getDbReplicaMaxLagSeconds() {
+        return Long.parseLong(get("DB_REPLICA_MAX_LAG_SECONDS", "5"));
+    }
+
+    public static long getDbReplicaCheckSeconds() {
+        return Long.parseLong(get("DB_REPLICA_CHECK_SECONDS", "10"));
+    }
+
+    /** Un servidor sin replicación configurada cuenta como réplica al día (solo para pruebas). */
+    public static boolean isDbReplicaStandaloneOk() {
+        return Boolean.parseBoolean(get("DB_REPLICA_STANDALONE_OK", "false"));
+    }
+
+    /**
+     * Espera máxima por una conexión de la réplica. Corta: si no responde, la
+     * petición se va a la primaria en lugar de esperar el timeout del pool.
+     */
+    public static long getDbReplicaConnectionTimeoutMs() {
+        return Long.parseLong(get("DB_REPLICA_CONNECTION_TIMEOUT_MS", "500"));
+    }
+
+    /** Tras escribir, las lecturas de esa sesión van a la primaria durante este tiempo. */
+    public static long getDbReadYourWritesSeconds() {
+        return Long.parseLong(get("DB_READ_YOUR_WRITES_SECONDS", "10"));
+    }
+
     // ---- JWT ----
     public static String getJwtSecret() {
         String secret = get("JWT_SECRET", null);
@@ -82,6 +166,35 @@ public class EnvConfig {
         return get("EMAIL_SMTP_PORT", "587");
     }
 
+    /**
+     * Con EMAIL_SMTP_AUTH=false y EMAIL_SMTP_STARTTLS=false se puede usar un SMTP
+     * local de pruebas (MailHog, smtp4dev, etc.) sin contraseña.
+     */
+    public static boolean isEmailSmtpAuth() {
+        return Boolean.parseBoolean(get("EMAIL_SMTP_AUTH", "true"));
+    }
+
+    public static boolean isEmailSmtpStarttls() {
+        return Boolean.parseBoolean(get("EMAIL_SMTP_STARTTLS", "true"));
+    }
+
+    public static long getEmailOutboxIntervalSeconds() {
+        return Long.parseLong(get("EMAIL_OUTBOX_INTERVAL_SECONDS", "30"));
+    }
+
+    public static int getEmailOutboxBatchSize() {
+        return Integer.parseInt(get("EMAIL_OUTBOX_BATCH_SIZE", "20"));
+    }
+
+    public static int getEmailOutboxMaxAttempts() {
+        return Integer.parseInt(get("EMAIL_OUTBOX_MAX_ATTEMPTS", "6"));
+    }
+
+    /** Espera antes del primer reintento; se duplica en cada intento fallido. */
+    public static long getEmailOutboxRetrySeconds() {
+        return Long.parseLong(get("EMAIL_OUTBOX_RETRY_SECONDS", "30"));
+    }
+
     // ---- APLICACIÓN ----
     public static String getAppName() {
         return get("APP_NAME", "Electronica Domestica API");
@@ -91,9 +204,78 @@ public class EnvConfig {
         return get("APP_FRONTEND_URL", "http://localhost:3000");
     }
 
+    // ---- ESTADÍSTICAS ----
+    public static long getStatsReconcileMinutes() {
+        return Long.parseLong(get("STATS_RECONCILE_MINUTES", "5"));
+    }
+
+    // ---- CONTRASEÑAS (BCrypt) ----
+    /** Factor de costo de BCrypt; los hashes con otro costo se actualizan al iniciar sesión. */
+    public static int getBcryptCost() {
+        return Integer.parseInt(get("BCRYPT_COST", "10"));
+    }
+
+    /** Hilos dedicados a BCrypt; por defecto la mitad de los núcleos. */
+    public static int getBcryptThreads() {
+        int porDefecto = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return Integer.parseInt(get("BCRYPT_THREADS", String.valueOf(porDefecto)));
+    }
+
+    /** Solicitudes de hash que pueden esperar turno antes de responder 429. */
+    public static int getBcryptQueueSize() {
+        return Integer.parseInt(get("BCRYPT_QUEUE_SIZE", "32"));
+    }
+
+    // ---- USUARIOS ----
+    /** Cada cuántos segundos se recarga el directorio de técnicos en memoria. */
+    public static long getTecnicosRefreshSeconds() {
+        return Long.parseLong(get("TECNICOS_REFRESH_SECONDS", "300"));
+    }
+
+    /** Usuarios por email que se mantienen en memoria para login y registro. */
+    public static int getUserCacheSize() {
+        return Integer.parseInt(get("USER_CACHE_SIZE", "10000"));
+    }
+
+    public static long getUserCacheTtlSeconds() {
+        return Long.parseLong(get("USER_CACHE_TTL_SECONDS", "300"));
+    }
+
+    /** Cuánto se recuerda que un email no existe. */
+    public static long getUserCacheNegativeTtlSeconds() {
+        return Long.parseLong(get("USER_CACHE_NEGATIVE_TTL_SECONDS", "30"));
+    }
+
+    /** Logins fallidos permitidos por IP dentro de la ventana antes de responder 429. */
+    public static int getLoginMaxAttempts() {
+        return Integer.parseInt(get("LOGIN_MAX_ATTEMPTS", "10"));
+    }
+
+    public static int getLoginMaxAttemptsPerIp() {
+        return Integer.parseInt(get("LOGIN_MAX_ATTEMPTS_PER_IP", "50"));
+    }
+
+    public static long getLoginWindowSeconds() {
+        return Long.parseLong(get("LOGIN_WINDOW_SECONDS", "300"));
+    }
+
+    /** Cada cuántos minutos se borran los tokens de recuperación vencidos. */
+    public static long getResetTokenSweepMinutes() {
+        return Long.parseLong(get("RESET_TOKEN_SWEEP_MINUTES", "15"));
+    }
+
+    /** Filas por DELETE al borrar tokens vencidos. */
+    public static int getResetTokenSweepBatch() {
+        return Integer.parseInt(get("RESET_TOKEN_SWEEP_BATCH", "1000"));
+    }
+
     // ---- MÉTODO AUXILIAR ----
+    // Orden: variable de entorno / .env, luego -Dclave=valor (p. ej. en los benchmarks)
     private static String get(String key, String defaultValue) {
         String value = dotenv.get(key);
+        if (value == null) {
+            value = System.getProperty(key);
+        }
         return value != null ? value : defaultValue;
     }
 
@@ -103,17 +285,45 @@ public class EnvConfig {
 
         try {
             System.out.println("📡 SERVER_PORT: " + getServerPort());
+            System.out.println("🧵 SERVER_VIRTUAL_THREADS: " + isVirtualThreadsEnabled());
             System.out.println("💾 DB_URL: " + maskSensitiveData(getDbUrl()));
             System.out.println("👤 DB_USERNAME: " + getDbUsername());
             System.out.println("🔐 DB_PASSWORD: " + (getDbPassword().isEmpty() ? "(vacío)" : "***"));
+            System.out.println("🏊 DB_POOL_PROFILE: " + PerfilPool.desdeEnv());
+            System.out.println("⏱️  DB_QUERY_SAMPLE_EVERY: " + getDbQuerySampleEvery());
+            if (!getDbReplicaUrl().isEmpty()) {
+                System.out.println("📖 DB_REPLICA_URL: " + maskSensitiveData(getDbReplicaUrl()) + " (retraso máx "
+                        + getDbReplicaMaxLagSeconds() + " s, lectura propia " + getDbReadYourWritesSeconds()
+                        + " s, timeout " + getDbReplicaConnectionTimeoutMs() + " ms"
+                        + (isDbReplicaStandaloneOk() ? ", acepta servidor sin replicación" : "") + ")");
+            }
+            if (isVirtualThreadsEnabled()) {
+                System.out.println("🚦 DB_MAX_CONCURRENCY: " + getDbMaxConcurrency());
+            }
             System.out.println("🔑 JWT_SECRET: " + maskSecret(getJwtSecret()));
             System.out.println("⏰ JWT_EXPIRATION: " + getJwtExpiration() + "ms");
             System.out.println("📧 EMAIL_FROM: " + getEmailFrom());
-            System.out.println("🔐 EMAIL_PASSWORD: " + maskSecret(getEmailPassword()));
+            if (isEmailSmtpAuth()) {
+                System.out.println("🔐 EMAIL_PASSWORD: " + maskSecret(getEmailPassword()));
+            } else {
+                System.out.println("🔓 EMAIL_SMTP_AUTH: false");
+            }
             System.out.println("📬 EMAIL_SMTP_HOST: " + getEmailSmtpHost());
             System.out.println("🔌 EMAIL_SMTP_PORT: " + getEmailSmtpPort());
+            System.out.println("📮 EMAIL_OUTBOX: cada " + getEmailOutboxIntervalSeconds() + " s, lotes de "
+                    + getEmailOutboxBatchSize() + ", " + getEmailOutboxMaxAttempts() + " intentos");
             System.out.println("🏷️  APP_NAME: " + getAppName());
             System.out.println("🌐 APP_FRONTEND_URL: " + getAppFrontendUrl());
+            System.out.println("📊 STATS_RECONCILE_MINUTES: " + getStatsReconcileMinutes());
+            System.out.println("👷 TECNICOS_REFRESH_SECONDS: " + getTecnicosRefreshSeconds());
+            System.out.println("🧂 BCRYPT: costo " + getBcryptCost() + ", " + getBcryptThreads() + " hilos, cola de "
+                    + getBcryptQueueSize());
+            System.out.println("🗂️  USER_CACHE: " + getUserCacheSize() + " usuarios, TTL " + getUserCacheTtlSeconds()
+                    + " s (inexistentes " + getUserCacheNegativeTtlSeconds() + " s)");
+            System.out.println("🚧 LOGIN: " + getLoginMaxAttempts() + " intentos fallidos por cuenta y "
+                    + getLoginMaxAttemptsPerIp() + " por IP cada " + getLoginWindowSeconds() + " s");
+            System.out.println("🧹 RESET_TOKEN_SWEEP: cada " + getResetTokenSweepMinutes() + " min, lotes de "
+                    + getResetTokenSweepBatch());
 
             System.out.println("\n✅ Configuración válida\n");
         } catch (Exception e) {
@@ -0,0 +1,27 @@
+package com.electronica.config;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Lectura de fechas en query params y archivos de importación.
+ */
+public final class Fechas {
+
+    private Fechas() {
+    }
+
+    /**
+     * Acepta fecha (2025-01-31) o fecha y hora ISO (2025-01-31T10:00:00 o
+     * 2025-01-31 10:00:00). Vacío o null devuelve null.
+     *
+     * @throws java.time.format.DateTimeParseException si el formato no es válido
+     */
+    public static LocalDateTime parse(String valor) {
+        if (valor == null || valor.isEmpty()) {
+            return null;
+        }
+        return valor.length() == 10 ? LocalDate.parse(valor).atStartOfDay()
+                : LocalDateTime.parse(valor.replace(' ', 'T'));
+    }
+}
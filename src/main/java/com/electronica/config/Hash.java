@@ -0,0 +1,48 @@
+package com.electronica.config;
+
+import io.javalin.http.Context;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * SHA-256 para tokens guardados (JWT verificados, tokens de recuperación) y
+ * ETags de los catálogos en memoria, más la respuesta 304 de los GET condicionales.
+ */
+public final class Hash {
+
+    private Hash() {
+    }
+
+    /** SHA-256 en base64 url-safe sin relleno (43 caracteres). */
+    public static String sha256(String valor) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(valor.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    /** ETag fuerte a partir del contenido serializado del catálogo. */
+    public static String etag(String contenido) {
+        return "\"" + sha256(contenido).substring(0, 22) + "\"";
+    }
+
+    /**
+     * Pone ETag y Cache-Control: no-cache. Si el cliente ya tiene esa versión
+     * (If-None-Match) responde 304 y devuelve true: el llamador no escribe cuerpo.
+     */
+    public static boolean noModificado(Context ctx, String etag) {
+        ctx.header("ETag", etag);
+        ctx.header("Cache-Control", "no-cache");
+        String ifNoneMatch = ctx.header("If-None-Match");
+        if (ifNoneMatch != null && ifNoneMatch.contains(etag)) {
+            ctx.status(304);
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,94 @@
+package com.electronica.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.javalin.http.Context;
+import io.javalin.json.JavalinJackson;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Escribe listados JSON directamente en la respuesta mientras se leen las filas
+ * del ResultSet, sin construir la lista ni el arreglo de bytes completo.
+ *
+ * El formato es el mismo que el de los endpoints normales:
+ * {"success": true, "data": [ ... ]}
+ *
+ * Como el status 200 se envía antes de terminar la consulta, un error a mitad del
+ * listado solo puede cortar la respuesta (JSON incompleto); se registra en el log.
+ */
+public class JsonStreaming {
+
+    private static ObjectMapper mapper = JavalinJackson.defaultMapper();
+    // Sin flush por elemento: Jetty y el generador ya bufferizan la salida
+    private static ObjectWriter writer = writerPara(mapper);
+
+    @FunctionalInterface
+    public interface Escritura {
+        void escribir(JsonGenerator gen) throws Exception;
+    }
+
+    /**
+     * Usa el mismo ObjectMapper que Javalin para que las fechas y números se
+     * serialicen igual que en ctx.json().
+     */
+    public static void setMapper(ObjectMapper objectMapper) {
+        mapper = objectMapper;
+        writer = writerPara(objectMapper);
+    }
+
+    public static ObjectMapper getMapper() {
+        return mapper;
+    }
+
+    private static ObjectWriter writerPara(ObjectMapper objectMapper) {
+        return objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /** true si el cliente pidió el modo streaming (?stream=true). */
+    public static boolean solicitado(Context ctx) {
+        return "true".equalsIgnoreCase(ctx.queryParam("stream"));
+    }
+
+    public static void lista(Context ctx, Escritura escritura) {
+        ctx.contentType("application/json");
+
+        try (JsonGenerator gen = mapper.createGenerator(ctx.outputStream())) {
+            gen.writeStartObject();
+            gen.writeBooleanField("success", true);
+            gen.writeArrayFieldStart("data");
+            try {
+                escritura.escribir(gen);
+            } catch (UncheckedIOException e) {
+                // El cliente cerró la conexión a mitad del listado
+                System.err.println("⚠️ Streaming interrumpido: " + e.getCause().getMessage());
+                gen.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+                return;
+            } catch (Exception e) {
+                // Ya no se puede cambiar el status: se corta la respuesta sin cerrar el
+                // JSON para que el cliente detecte que el listado quedó incompleto
+                System.err.println("❌ Error durante respuesta en streaming: " + e.getMessage());
+                e.printStackTrace();
+                gen.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+                return;
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+        } catch (IOException e) {
+            // El cliente cerró la conexión
+            System.err.println("⚠️ Streaming interrumpido: " + e.getMessage());
+        }
+    }
+
+    /** Serializa un elemento con el mapper configurado; útil dentro de un Consumer. */
+    public static void escribir(JsonGenerator gen, Object valor) {
+        try {
+            writer.writeValue(gen, valor);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -4,28 +4,43 @@ import com.auth0.jwt.JWT;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import com.auth0.jwt.interfaces.JWTVerifier;
 import io.javalin.http.Context;
 
 import java.util.Date;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class JwtConfig {
 
-    public static String generateToken(String userId, String email) {
-        Algorithm algorithm = Algorithm.HMAC256(EnvConfig.getJwtSecret());
+    // El secreto se lee una sola vez; EnvConfig.validateConfig() ya lo validó al iniciar
+    private static final Algorithm ALGORITHM = Algorithm.HMAC256(EnvConfig.getJwtSecret());
+    private static final JWTVerifier VERIFIER = JWT.require(ALGORITHM).build();
+    private static final long EXPIRATION_MS = EnvConfig.getJwtExpiration();
+
+    /**
+     * Tokens ya verificados, por hash SHA-256 del token, hasta que expiran.
+     * Así cada petición autenticada es una búsqueda en el mapa en lugar de
+     * recalcular la firma HMAC.
+     */
+    private static final int MAX_TOKENS_CACHE = 10_000;
+    private static final Map<String, TokenVerificado> CACHE = new ConcurrentHashMap<>();
 
+    private record TokenVerificado(String userId, String email, long expiraEn) {
+    }
+
+    public static String generateToken(String userId, String email) {
         return JWT.create()
                 .withSubject(userId)
                 .withClaim("email", email)
                 .withIssuedAt(new Date())
-                .withExpiresAt(new Date(System.currentTimeMillis() + EnvConfig.getJwtExpiration()))
-                .sign(algorithm);
+                .withExpiresAt(new Date(System.currentTimeMillis() + EXPIRATION_MS))
+                .sign(ALGORITHM);
     }
 
     public static DecodedJWT verifyToken(String token) {
         try {
-            Algorithm algorithm = Algorithm.HMAC256(EnvConfig.getJwtSecret());
-            return JWT.require(algorithm).build().verify(token);
+            return VERIFIER.verify(token);
         } catch (JWTVerificationException e) {
             throw new IllegalArgumentException("Token inválido o expirado");
         }
@@ -35,24 +50,60 @@ public class JwtConfig {
         String authHeader = ctx.header("Authorization");
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            ctx.status(401).json(Map.of(
-                    "success", false,
-                    "message", "Token no proporcionado"
-            ));
+            rechazar(ctx, "Token no proporcionado");
             return;
         }
 
         String token = authHeader.substring(7);
 
         try {
-            DecodedJWT jwt = verifyToken(token);
-            ctx.attribute("userId", jwt.getSubject());
-            ctx.attribute("email", jwt.getClaim("email").asString());
+            TokenVerificado verificado = verificarConCache(token);
+            ctx.attribute("userId", verificado.userId());
+            ctx.attribute("email", verificado.email());
         } catch (IllegalArgumentException e) {
-            ctx.status(401).json(Map.of(
-                    "success", false,
-                    "message", e.getMessage()
-            ));
+            rechazar(ctx, e.getMessage());
+        }
+    }
+
+    private static void rechazar(Context ctx, String message) {
+        ctx.status(401).json(Map.of(
+                "success", false,
+                "message", message
+        ));
+        // Sin esto Javalin seguiría ejecutando el endpoint protegido
+        ctx.skipRemainingHandlers();
+    }
+
+    private static TokenVerificado verificarConCache(String token) {
+        String clave = Hash.sha256(token);
+        long ahora = System.currentTimeMillis();
+
+        TokenVerificado cacheado = CACHE.get(clave);
+        if (cacheado != null) {
+            if (cacheado.expiraEn() > ahora) {
+                return cacheado;
+            }
+            CACHE.remove(clave);
+            throw new IllegalArgumentException("Token inválido o expirado");
         }
+
+        DecodedJWT jwt = verifyToken(token);
+        Date expiresAt = jwt.getExpiresAt();
+        TokenVerificado verificado = new TokenVerificado(
+                jwt.getSubject(),
+                jwt.getClaim("email").asString(),
+                expiresAt != null ? expiresAt.getTime() : ahora + EXPIRATION_MS);
+
+        if (CACHE.size() >= MAX_TOKENS_CACHE) {
+            purgarExpirados(ahora);
+        }
+        if (CACHE.size() < MAX_TOKENS_CACHE) {
+            CACHE.put(clave, verificado);
+        }
+        return verificado;
+    }
+
+    private static void purgarExpirados(long ahora) {
+        CACHE.values().removeIf(t -> t.expiraEn() <= ahora);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,250 @@
+package com.electronica.config;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * DataSource para las consultas de solo lectura pesadas (listados, exportación,
+ * estadísticas): las manda a la réplica cuando se puede y a la primaria cuando no.
+ *
+ * Se usa la primaria si:
+ * - no hay réplica configurada (DB_REPLICA_URL vacío),
+ * - la réplica va más de DB_REPLICA_MAX_LAG_SECONDS atrás, tiene la replicación
+ *   detenida o no responde (se revisa cada DB_REPLICA_CHECK_SECONDS),
+ * - la petición actual escribe (POST/PUT/PATCH/DELETE), o la misma sesión
+ *   escribió hace menos de DB_READ_YOUR_WRITES_SECONDS: quien acaba de registrar
+ *   un servicio debe verlo en el listado aunque la réplica no lo tenga todavía.
+ *
+ * La sesión (token o IP) la fijan los before/after globales de Main con
+ * iniciarPeticion/terminarPeticion. Las consultas fuera de una petición HTTP
+ * (tareas programadas) también pueden ir a la réplica.
+ */
+public class LecturasReplica implements DataSource {
+
+    // Tope de sesiones recordadas; al llegar a él se purgan las que ya vencieron y, si
+    // sigue lleno, la escritura no se recuerda (esa sesión puede leer de la réplica)
+    private static final int MAX_SESIONES = 50_000;
+
+    private record Peticion(String sesion, boolean escritura) {
+    }
+
+    private static final ThreadLocal<Peticion> PETICION = new ThreadLocal<>();
+
+    private final DataSource primaria;
+    private final DataSource replica;
+    private final long maxRetrasoSegundos;
+    private final long ventanaEscrituraMs;
+    private final boolean independienteOk;
+    private final Map<String, Long> ultimaEscritura = new ConcurrentHashMap<>();
+
+    private volatile boolean replicaSana;
+    private volatile Long retrasoSegundos;
+    private final AtomicLong lecturasReplica = new AtomicLong();
+    private final AtomicLong lecturasPrimaria = new AtomicLong();
+    private final AtomicLong sesionesDescartadas = new AtomicLong();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "replica-retraso");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public LecturasReplica(DataSource primaria, DataSource replica, long maxRetrasoSegundos,
+            long ventanaEscrituraSegundos, boolean independienteOk) {
+        this.primaria = primaria;
+        this.replica = replica;
+        this.maxRetrasoSegundos = maxRetrasoSegundos;
+        this.ventanaEscrituraMs = ventanaEscrituraSegundos * 1000;
+        this.independienteOk = independienteOk;
+    }
+
+    public void iniciar(long segundos) {
+        if (replica == null) {
+            System.out.println("📖 Sin réplica de lectura: todas las consultas van a la primaria");
+            return;
+        }
+        executor.scheduleWithFixedDelay(this::revisarRetraso, 0, segundos, TimeUnit.SECONDS);
+        System.out.println("📖 Réplica de lectura activa (retraso máximo " + maxRetrasoSegundos + " s, revisión cada "
+                + segundos + " s)");
+    }
+
+    // ---- Sesión de la petición actual ----
+
+    /**
+     * @param sesion token Authorization o IP; se guarda solo su SHA-256 para no
+     *               mantener tokens vigentes en memoria
+     */
+    public static void iniciarPeticion(String sesion, boolean escritura) {
+        PETICION.set(new Peticion(Hash.sha256(sesion), escritura));
+    }
+
+    /** Si la petición escribió con éxito, las lecturas de su sesión van a la primaria un rato. */
+    public void terminarPeticion(boolean exito) {
+        Peticion peticion = PETICION.get();
+        PETICION.remove();
+        if (peticion == null || !peticion.escritura() || !exito || replica == null) {
+            return;
+        }
+
+        long ahora = System.currentTimeMillis();
+        if (ultimaEscritura.size() >= MAX_SESIONES && !ultimaEscritura.containsKey(peticion.sesion())) {
+            ultimaEscritura.values().removeIf(t -> t + ventanaEscrituraMs <= ahora);
+            if (ultimaEscritura.size() >= MAX_SESIONES) {
+                sesionesDescartadas.incrementAndGet();
+                return;
+            }
+        }
+        ultimaEscritura.put(peticion.sesion(), ahora);
+    }
+
+    // ---- DataSource ----
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (usarReplica()) {
+            try {
+                Connection conexion = replica.getConnection();
+                lecturasReplica.incrementAndGet();
+                return conexion;
+            } catch (SQLException e) {
+                replicaSana = false;
+                System.err.println("⚠️ Réplica no disponible, se lee de la primaria: " + e.getMessage());
+            }
+        }
+        lecturasPrimaria.incrementAndGet();
+        return primaria.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primaria.getConnection(username, password);
+    }
+
+    private boolean usarReplica() {
+        if (replica == null || !replicaSana) {
+            return false;
+        }
+        Peticion peticion = PETICION.get();
+        if (peticion == null) {
+            return true;
+        }
+        if (peticion.escritura()) {
+            return false;
+        }
+        Long escribio = ultimaEscritura.get(peticion.sesion());
+        return escribio == null || escribio + ventanaEscrituraMs <= System.currentTimeMillis();
+    }
+
+    // ---- Retraso de la réplica ----
+
+    private void revisarRetraso() {
+        try (Connection conn = replica.getConnection();
+                Statement stmt = conn.createStatement()) {
+            Long retraso = leerRetraso(stmt);
+            boolean sana = retraso != null && retraso <= maxRetrasoSegundos;
+            if (sana != replicaSana) {
+                System.out.println(sana ? "✅ Réplica al día, las lecturas vuelven a ella"
+                        : "⚠️ Réplica con retraso de "
+                                + (retraso != null ? retraso + " s" : "(replicación detenida o no configurada)")
+                                + ", se lee de la primaria");
+            }
+            retrasoSegundos = retraso;
+            replicaSana = sana;
+        } catch (Exception e) {
+            if (replicaSana) {
+                System.err.println("⚠️ No se pudo revisar la réplica, se lee de la primaria: " + e.getMessage());
+            }
+            retrasoSegundos = null;
+            replicaSana = false;
+        }
+    }
+
+    /**
+     * Segundos de retraso, o null si la replicación está detenida. Un servidor que
+     * no es réplica (sin filas en SHOW REPLICA STATUS) también es null: puede ser una
+     * URL equivocada que apunta a otra base. Solo con DB_REPLICA_STANDALONE_OK=true
+     * (p. ej. una segunda instancia local en pruebas) cuenta como al día.
+     */
+    private Long leerRetraso(Statement stmt) throws SQLException {
+        try {
+            return leerRetraso(stmt, "SHOW REPLICA STATUS", "Seconds_Behind_Source");
+        } catch (SQLException e) {
+            // MySQL anterior a 8.0.22
+            return leerRetraso(stmt, "SHOW SLAVE STATUS", "Seconds_Behind_Master");
+        }
+    }
+
+    private Long leerRetraso(Statement stmt, String sql, String columna) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            if (!rs.next()) {
+                return independienteOk ? 0L : null;
+            }
+            long valor = rs.getLong(columna);
+            return rs.wasNull() ? null : valor;
+        }
+    }
+
+    public Map<String, Object> getEstadisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("configurada", replica != null);
+        stats.put("sana", replicaSana);
+        stats.put("retrasoSegundos", retrasoSegundos);
+        stats.put("lecturasReplica", lecturasReplica.get());
+        stats.put("lecturasPrimaria", lecturasPrimaria.get());
+        stats.put("sesionesEscritura", ultimaEscritura.size());
+        stats.put("sesionesDescartadas", sesionesDescartadas.get());
+        return stats;
+    }
+
+    // ---- Delegación ----
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return primaria.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primaria.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primaria.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return primaria.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return primaria.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return primaria.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primaria.isWrapperFor(iface);
+    }
+}
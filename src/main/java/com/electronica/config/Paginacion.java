@@ -0,0 +1,32 @@
+package com.electronica.config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Tamaño de página y cursores opacos de los listados paginados (servicios,
+ * finalizados, clientes).
+ *
+ * Cada filtro arma el texto de su cursor (p. ej. "fecha|id"); aquí solo se
+ * codifica en base64 url-safe para que el frontend lo trate como opaco.
+ */
+public final class Paginacion {
+    public static final int LIMITE_DEFAULT = 100;
+    public static final int LIMITE_MAXIMO = 500;
+
+    private Paginacion() {
+    }
+
+    public static int limitar(int limite) {
+        return Math.max(1, Math.min(limite, LIMITE_MAXIMO));
+    }
+
+    public static String codificarCursor(String valor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** @throws IllegalArgumentException si el cursor no es base64 válido */
+    public static String decodificarCursor(String cursor) {
+        return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    }
+}
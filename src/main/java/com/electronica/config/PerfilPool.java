@@ -0,0 +1,47 @@
+package com.electronica.config;
+
+import java.util.Locale;
+
+/**
+ * Configuración del pool de Hikari según DB_POOL_PROFILE. Cada valor se puede
+ * sobrescribir con su variable DB_POOL_* sin cambiar de perfil.
+ *
+ * - small: sucursal con pocos usuarios y MySQL en la misma máquina
+ * - medium: valores por defecto
+ * - large: servidor central
+ *
+ * El timeout de conexión es corto a propósito: con el pool agotado es mejor
+ * responder error en segundos que dejar la petición esperando medio minuto.
+ * La detección de fugas (60 s) también avisa de la exportación CSV y de los
+ * listados con ?stream=true que tarden más: retienen la conexión mientras escriben
+ * la respuesta. Es solo un aviso en el log (Hikari avisa de nuevo cuando la conexión
+ * vuelve); ver DB_POOL_LEAK_DETECTION_MS en el README.
+ */
+public record PerfilPool(String nombre, int maxPoolSize, int minIdle, long connectionTimeoutMs,
+        long idleTimeoutMs, long maxLifetimeMs, long leakDetectionMs) {
+
+    public static PerfilPool desdeEnv() {
+        String nombre = EnvConfig.getDbPoolProfile().toLowerCase(Locale.ROOT);
+        PerfilPool base = switch (nombre) {
+            case "small" -> new PerfilPool(nombre, 4, 1, 5_000, 300_000, 1_800_000, 60_000);
+            case "medium" -> new PerfilPool(nombre, 10, 2, 5_000, 600_000, 1_800_000, 60_000);
+            case "large" -> new PerfilPool(nombre, 30, 10, 3_000, 600_000, 1_800_000, 60_000);
+            default -> throw new IllegalArgumentException(
+                    "DB_POOL_PROFILE debe ser small, medium o large (valor: " + nombre + ")");
+        };
+
+        return new PerfilPool(nombre,
+                EnvConfig.getDbPoolMaxSize(base.maxPoolSize()),
+                EnvConfig.getDbPoolMinIdle(base.minIdle()),
+                EnvConfig.getDbPoolConnectionTimeoutMs(base.connectionTimeoutMs()),
+                base.idleTimeoutMs(),
+                base.maxLifetimeMs(),
+                EnvConfig.getDbPoolLeakDetectionMs(base.leakDetectionMs()));
+    }
+
+    @Override
+    public String toString() {
+        return nombre + " (máx " + maxPoolSize + ", mín inactivas " + minIdle + ", timeout " + connectionTimeoutMs
+                + " ms, fugas " + (leakDetectionMs > 0 ? leakDetectionMs + " ms" : "desactivado") + ")";
+    }
+}
@@ -0,0 +1,191 @@
+package com.electronica.config;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * DataSource que permite que varios repositorios compartan una transacción.
+ *
+ * Dentro de {@link #ejecutar(Supplier)}, cada getConnection() del mismo hilo
+ * devuelve la conexión de la transacción: los repositorios se unen sin cambiar
+ * su código. En esa conexión close(), commit(), rollback() y setAutoCommit() no
+ * hacen nada; quien confirma o revierte es ejecutar(). Fuera de una unidad de
+ * trabajo se comporta como el DataSource que envuelve (autocommit normal).
+ *
+ * Los avisos a listeners (p. ej. el índice de clientes) se registran con
+ * {@link #despuesDeConfirmar(Runnable)} para no publicar filas que luego se revierten.
+ */
+public class UnidadDeTrabajo implements DataSource {
+
+    private static final class Transaccion {
+        final Connection conexion;
+        final Connection compartida;
+        final List<Runnable> alConfirmar = new ArrayList<>();
+
+        Transaccion(Connection conexion) {
+            this.conexion = conexion;
+            this.compartida = compartir(conexion);
+        }
+    }
+
+    private static final ThreadLocal<Transaccion> ACTUAL = new ThreadLocal<>();
+
+    private final DataSource delegate;
+
+    public UnidadDeTrabajo(DataSource delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Ejecuta {@code trabajo} en una sola transacción y una sola conexión. Si lanza
+     * una excepción se revierte todo y la excepción se propaga. Llamadas anidadas
+     * se unen a la transacción exterior.
+     */
+    public <T> T ejecutar(Supplier<T> trabajo) {
+        if (ACTUAL.get() != null) {
+            return trabajo.get();
+        }
+
+        Transaccion transaccion;
+        try {
+            Connection conexion = delegate.getConnection();
+            conexion.setAutoCommit(false);
+            transaccion = new Transaccion(conexion);
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al iniciar la transacción", e);
+        }
+
+        ACTUAL.set(transaccion);
+        T resultado;
+        try {
+            resultado = trabajo.get();
+            transaccion.conexion.commit();
+        } catch (SQLException e) {
+            revertir(transaccion.conexion);
+            throw new RuntimeException("Error al confirmar la transacción", e);
+        } catch (RuntimeException | Error e) {
+            revertir(transaccion.conexion);
+            throw e;
+        } finally {
+            ACTUAL.remove();
+            cerrar(transaccion.conexion);
+        }
+
+        for (Runnable accion : transaccion.alConfirmar) {
+            accion.run();
+        }
+        return resultado;
+    }
+
+    /** Corre la acción al confirmar la transacción actual, o en seguida si no hay una. */
+    public static void despuesDeConfirmar(Runnable accion) {
+        Transaccion transaccion = ACTUAL.get();
+        if (transaccion == null) {
+            accion.run();
+        } else {
+            transaccion.alConfirmar.add(accion);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Transaccion transaccion = ACTUAL.get();
+        return transaccion != null ? transaccion.compartida : delegate.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Transaccion transaccion = ACTUAL.get();
+        return transaccion != null ? transaccion.compartida : delegate.getConnection(username, password);
+    }
+
+    // La transacción la controla ejecutar(); los repositorios no pueden cerrarla ni confirmarla
+    private static Connection compartir(Connection conexion) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close", "setAutoCommit":
+                            return null;
+                        case "commit", "rollback":
+                            if (method.getParameterCount() == 0) {
+                                return null;
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                    try {
+                        return method.invoke(conexion, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private static void revertir(Connection conexion) {
+        try {
+            conexion.rollback();
+        } catch (SQLException e) {
+            System.err.println("⚠️ Error al revertir la transacción: " + e.getMessage());
+        }
+    }
+
+    // Hikari restablece el autocommit al devolver la conexión al pool
+    private static void cerrar(Connection conexion) {
+        try {
+            conexion.close();
+        } catch (SQLException e) {
+            System.err.println("⚠️ Error al cerrar la conexión de la transacción: " + e.getMessage());
+        }
+    }
+
+    // ---- Delegación ----
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return delegate.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || delegate.isWrapperFor(iface);
+    }
+}
@@ -0,0 +1,32 @@
+package com.electronica.importacion.models;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Una orden histórica ya validada y con sus ids resueltos, lista para insertarse.
+ * Si {@code clienteNuevo} es true el cliente también se inserta; si no, ya existía
+ * en la BD o apareció en una fila anterior del mismo archivo.
+ */
+public record FilaImportacion(
+        long linea,
+        String clienteId,
+        boolean clienteNuevo,
+        String nombre,
+        String apellidos,
+        String numeroCelular,
+        String equipoId,
+        int marcaId,
+        String modelo,
+        String tipoEquipo,
+        String numeroSerie,
+        String servicioId,
+        String tecnicoId,
+        String problemaReportado,
+        LocalDateTime fechaIngreso,
+        String estado,
+        String diagnosticoTecnico,
+        LocalDateTime fechaFinalizacion,
+        LocalDateTime fechaEntregaCliente,
+        BigDecimal costoReparacion) {
+}
@@ -0,0 +1,123 @@
+package com.electronica.importacion.repository;
+
+import com.electronica.importacion.models.FilaImportacion;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ImportacionRepository {
+
+    private final DataSource dataSource;
+
+    public ImportacionRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * numero_celular -> id de todos los clientes (incluidos los eliminados, porque
+     * el número es UNIQUE). Se lee una sola vez al inicio de la importación.
+     */
+    public Map<String, String> findIdsClientesPorNumero() {
+        Map<String, String> clientes = new HashMap<>();
+
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement stmt = conn.prepareStatement("SELECT numero_celular, id FROM clientes",
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    clientes.put(rs.getString(1), rs.getString(2));
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al cargar clientes para importación", e);
+        }
+        return clientes;
+    }
+
+    /** id y correo (en minúsculas) -> id de cada usuario, para resolver el técnico de cada fila. */
+    public Map<String, String> findIdsUsuarios() {
+        Map<String, String> usuarios = new HashMap<>();
+
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement stmt = conn.prepareStatement("SELECT id, correo_electronico FROM users");
+                ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                String id = rs.getString(1);
+                usuarios.put(id, id);
+                usuarios.put(rs.getString(2).toLowerCase(), id);
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al cargar usuarios para importación", e);
+        }
+        return usuarios;
+    }
+
+    /**
+     * Inserta un bloque de filas (clientes nuevos, equipos y servicios) en una sola
+     * transacción usando batches; si algo falla no queda nada del bloque.
+     */
+    public void insertarBloque(List<FilaImportacion> filas) throws SQLException {
+        String sqlCliente = "INSERT INTO clientes (id, nombre, apellidos, numero_celular) VALUES (?, ?, ?, ?)";
+        String sqlEquipo = "INSERT INTO equipos (id, cliente_id, marca_id, modelo, tipo_equipo, numero_serie) VALUES (?, ?, ?, ?, ?, ?)";
+        String sqlServicio = "INSERT INTO servicios (id, equipo_id, tecnico_id, problema_reportado, fecha_ingreso, estado, "
+                + "diagnostico_tecnico, fecha_finalizacion, fecha_entrega_cliente, costo_reparacion) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement clientes = conn.prepareStatement(sqlCliente);
+                    PreparedStatement equipos = conn.prepareStatement(sqlEquipo);
+                    PreparedStatement servicios = conn.prepareStatement(sqlServicio)) {
+
+                for (FilaImportacion f : filas) {
+                    if (f.clienteNuevo()) {
+                        clientes.setString(1, f.clienteId());
+                        clientes.setString(2, f.nombre());
+                        clientes.setString(3, f.apellidos());
+                        clientes.setString(4, f.numeroCelular());
+                        clientes.addBatch();
+                    }
+
+                    equipos.setString(1, f.equipoId());
+                    equipos.setString(2, f.clienteId());
+                    equipos.setInt(3, f.marcaId());
+                    equipos.setString(4, f.modelo());
+                    equipos.setString(5, f.tipoEquipo());
+                    equipos.setString(6, f.numeroSerie());
+                    equipos.addBatch();
+
+                    servicios.setString(1, f.servicioId());
+                    servicios.setString(2, f.equipoId());
+                    servicios.setString(3, f.tecnicoId());
+                    servicios.setString(4, f.problemaReportado());
+                    servicios.setTimestamp(5, Timestamp.valueOf(f.fechaIngreso()));
+                    servicios.setString(6, f.estado());
+                    servicios.setString(7, f.diagnosticoTecnico());
+                    servicios.setTimestamp(8, f.fechaFinalizacion() != null ? Timestamp.valueOf(f.fechaFinalizacion()) : null);
+                    servicios.setTimestamp(9, f.fechaEntregaCliente() != null ? Timestamp.valueOf(f.fechaEntregaCliente()) : null);
+                    servicios.setBigDecimal(10, f.costoReparacion());
+                    servicios.addBatch();
+                }
+
+                // Orden de las llaves foráneas: clientes -> equipos -> servicios
+                clientes.executeBatch();
+                equipos.executeBatch();
+                servicios.executeBatch();
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.electronica.importacion.routes;
+
+import com.electronica.config.JwtConfig;
+import com.electronica.importacion.services.ImportacionService;
+import io.javalin.Javalin;
+
+public class ImportacionRoutes {
+
+    public static void register(Javalin app, ImportacionService service) {
+
+        app.before("/api/importar*", JwtConfig::validateToken);
+
+        // Cuerpo CSV (text/csv) o NDJSON (application/x-ndjson); respuesta NDJSON con el avance
+        app.post("/api/importar", service::importar);
+    }
+}
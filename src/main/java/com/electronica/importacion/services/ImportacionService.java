@@ -0,0 +1,463 @@
+package com.electronica.importacion.services;
+
+import com.electronica.config.Fechas;
+import com.electronica.config.JsonStreaming;
+import com.electronica.importacion.models.FilaImportacion;
+import com.electronica.importacion.repository.ImportacionRepository;
+import com.electronica.marca.models.Marca;
+import com.electronica.marca.services.MarcaService;
+import com.electronica.servicio.models.EstadoServicio;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.javalin.http.Context;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Importación masiva de órdenes históricas (cliente + equipo + servicio por fila)
+ * desde CSV con encabezado o NDJSON (un objeto JSON por línea).
+ *
+ * El archivo se lee fila por fila; los clientes se deduplican por numero_celular
+ * contra un mapa en memoria (cargado una vez de la BD) en lugar de consultar la
+ * BD por cada fila, y las inserciones van en batches, un bloque de
+ * TAMANO_BLOQUE filas por transacción.
+ *
+ * Cada fila se valida antes de entrar al bloque (largo de cada columna, rangos,
+ * marca y técnico existentes), así que un bloque rara vez falla. Si aun así falla,
+ * se reintenta fila por fila y solo se rechazan las filas que MySQL no acepta.
+ *
+ * La respuesta es NDJSON y se envía conforme avanza la importación:
+ * {"tipo":"error","linea":N,"mensaje":"..."} por cada fila rechazada,
+ * {"tipo":"progreso",...} después de cada bloque y {"tipo":"resumen",...} al final.
+ */
+public class ImportacionService {
+
+    private static final int TAMANO_BLOQUE = 1000;
+    private static final int MAX_ERRORES_REPORTADOS = 1000;
+
+    private final ImportacionRepository repository;
+    private final MarcaService marcaService;
+    private final AtomicBoolean enCurso = new AtomicBoolean(false);
+    private Runnable alTerminar = () -> {
+    };
+
+    public ImportacionService(ImportacionRepository repository, MarcaService marcaService) {
+        this.repository = repository;
+        this.marcaService = marcaService;
+    }
+
+    /**
+     * Se ejecuta después de una importación con filas insertadas; los batches no
+     * pasan por los listeners del repositorio de servicios (p. ej. acumulados de ingresos).
+     */
+    public void setAlTerminar(Runnable alTerminar) {
+        this.alTerminar = alTerminar;
+    }
+
+    public void importar(Context ctx) {
+        String formato = formato(ctx);
+        if (formato == null) {
+            ctx.status(400).json(Map.of("success", false,
+                    "message", "Formato no soportado: use text/csv o application/x-ndjson (o ?formato=csv|ndjson)"));
+            return;
+        }
+
+        // El mapa de deduplicación asume que nadie más crea clientes en bloque a la vez
+        if (!enCurso.compareAndSet(false, true)) {
+            ctx.status(409).json(Map.of("success", false, "message", "Ya hay una importación en curso"));
+            return;
+        }
+
+        try {
+            Importacion importacion = new Importacion(ctx.attribute("userId"));
+            ctx.contentType("application/x-ndjson");
+
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(ctx.bodyInputStream(), StandardCharsets.UTF_8));
+                    OutputStream out = ctx.outputStream()) {
+
+                importacion.ejecutar(reader, formato, out);
+
+            } catch (IOException e) {
+                System.err.println("⚠️ Importación interrumpida: " + e.getMessage());
+            }
+
+            if (importacion.insertadas > 0) {
+                alTerminar.run();
+            }
+        } finally {
+            enCurso.set(false);
+        }
+    }
+
+    private static String formato(Context ctx) {
+        String formato = ctx.queryParam("formato");
+        if (formato == null) {
+            String tipo = ctx.contentType() != null ? ctx.contentType().toLowerCase(Locale.ROOT) : "";
+            if (tipo.contains("csv")) {
+                formato = "csv";
+            } else if (tipo.contains("ndjson") || tipo.contains("jsonl") || tipo.contains("json-seq")) {
+                formato = "ndjson";
+            }
+        }
+        formato = formato != null ? formato.toLowerCase(Locale.ROOT) : null;
+        return "csv".equals(formato) || "ndjson".equals(formato) ? formato : null;
+    }
+
+    /** Estado de una importación en curso. */
+    private class Importacion {
+
+        private final ObjectMapper mapper = JsonStreaming.getMapper();
+        private final String tecnicoPorDefecto;
+        private final long inicio = System.currentTimeMillis();
+
+        private final Map<String, String> clientes = repository.findIdsClientesPorNumero();
+        private final Map<String, String> usuarios = repository.findIdsUsuarios();
+        private final Map<String, Integer> marcas = new HashMap<>();
+
+        private final List<FilaImportacion> bloque = new ArrayList<>(TAMANO_BLOQUE);
+        private final List<String> clientesDelBloque = new ArrayList<>();
+        private OutputStream out;
+
+        private long procesadas;
+        private long insertadas;
+        private long clientesNuevos;
+        private long errores;
+
+        Importacion(String tecnicoPorDefecto) {
+            this.tecnicoPorDefecto = tecnicoPorDefecto;
+            for (Marca marca : marcaService.getMarcas()) {
+                marcas.put(marca.getNombreMarca().trim().toLowerCase(Locale.ROOT), marca.getId());
+            }
+        }
+
+        void ejecutar(BufferedReader reader, String formato, OutputStream out) throws IOException {
+            this.out = out;
+            boolean completa = true;
+
+            try {
+                if ("csv".equals(formato)) {
+                    leerCsv(reader);
+                } else {
+                    leerNdjson(reader);
+                }
+                cerrarBloque();
+            } catch (IOException e) {
+                // Archivo mal formado (p. ej. comillas sin cerrar): se conserva lo ya insertado
+                completa = false;
+                evento(Map.of("tipo", "error", "mensaje", e.getMessage()));
+            }
+
+            Map<String, Object> resumen = new LinkedHashMap<>();
+            resumen.put("tipo", "resumen");
+            resumen.put("completa", completa);
+            resumen.put("procesadas", procesadas);
+            resumen.put("insertadas", insertadas);
+            resumen.put("clientesNuevos", clientesNuevos);
+            resumen.put("errores", errores);
+            resumen.put("segundos", (System.currentTimeMillis() - inicio) / 1000.0);
+            evento(resumen);
+            out.flush();
+
+            System.out.println("📥 Importación: " + insertadas + " de " + procesadas + " filas insertadas, "
+                    + clientesNuevos + " clientes nuevos, " + errores + " errores");
+        }
+
+        private void leerCsv(BufferedReader reader) throws IOException {
+            LectorCsv csv = new LectorCsv(reader);
+            List<String> encabezado = csv.leer();
+            if (encabezado == null) {
+                return;
+            }
+            List<String> columnas = new ArrayList<>(encabezado.size());
+            for (String columna : encabezado) {
+                columnas.add(normalizar(columna));
+            }
+
+            List<String> valores;
+            while ((valores = csv.leer()) != null) {
+                if (valores.size() == 1 && valores.get(0).isBlank()) {
+                    continue;
+                }
+                Map<String, String> campos = new HashMap<>();
+                for (int i = 0; i < columnas.size() && i < valores.size(); i++) {
+                    campos.put(columnas.get(i), valores.get(i));
+                }
+                procesar(csv.getLinea(), campos);
+            }
+        }
+
+        private void leerNdjson(BufferedReader reader) throws IOException {
+            String texto;
+            long linea = 0;
+            while ((texto = reader.readLine()) != null) {
+                linea++;
+                if (texto.isBlank()) {
+                    continue;
+                }
+
+                Map<?, ?> objeto;
+                try {
+                    objeto = mapper.readValue(texto, Map.class);
+                } catch (IOException e) {
+                    procesadas++;
+                    error(linea, "JSON inválido");
+                    continue;
+                }
+
+                Map<String, String> campos = new HashMap<>();
+                for (Map.Entry<?, ?> e : objeto.entrySet()) {
+                    if (e.getValue() != null) {
+                        campos.put(normalizar(String.valueOf(e.getKey())), String.valueOf(e.getValue()));
+                    }
+                }
+                procesar(linea, campos);
+            }
+        }
+
+        private void procesar(long linea, Map<String, String> campos) throws IOException {
+            procesadas++;
+            try {
+                bloque.add(convertir(linea, campos));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                error(linea, e.getMessage());
+            }
+
+            if (bloque.size() >= TAMANO_BLOQUE) {
+                cerrarBloque();
+            }
+        }
+
+        private FilaImportacion convertir(long linea, Map<String, String> campos) {
+            // Los largos máximos son los de las columnas en database_schema.sql
+            String numero = maximo("numeroCelular", requerido(campos, "numerocelular"), 20);
+
+            // Deduplicación en memoria: un número ya visto (en BD o en este archivo) reutiliza el cliente
+            String clienteId = clientes.get(numero);
+            boolean clienteNuevo = clienteId == null;
+            String nombre = null;
+            String apellidos = null;
+            if (clienteNuevo) {
+                nombre = maximo("nombre", requerido(campos, "nombre"), 100);
+                apellidos = maximo("apellidos", requerido(campos, "apellidos"), 100);
+                clienteId = UUID.randomUUID().toString();
+            }
+
+            Integer marcaId;
+            String marcaIdTexto = opcional(campos, "marcaid");
+            if (marcaIdTexto != null) {
+                marcaId = entero("marcaId", marcaIdTexto);
+                if (marcaService.nombreDe(marcaId).isEmpty()) {
+                    throw new IllegalArgumentException("Marca no encontrada: " + marcaId);
+                }
+            } else {
+                String marca = requerido(campos, "marca");
+                marcaId = marcas.get(marca.toLowerCase(Locale.ROOT));
+                if (marcaId == null) {
+                    throw new IllegalArgumentException("Marca no encontrada: " + marca);
+                }
+            }
+
+            String tecnico = opcional(campos, "tecnicoid");
+            if (tecnico == null) {
+                tecnico = opcional(campos, "tecnicocorreo");
+            }
+            String tecnicoId = tecnico != null ? usuarios.get(tecnico.toLowerCase(Locale.ROOT)) : tecnicoPorDefecto;
+            if (tecnico != null && tecnicoId == null) {
+                tecnicoId = usuarios.get(tecnico);
+            }
+            if (tecnicoId == null) {
+                throw new IllegalArgumentException("Técnico no encontrado: " + tecnico);
+            }
+
+            String estado = opcional(campos, "estado");
+            estado = estado != null ? estado.toUpperCase(Locale.ROOT) : "PENDIENTE";
+            if (!EstadoServicio.esValido(estado)) {
+                throw new IllegalArgumentException("Estado inválido: " + estado);
+            }
+
+            // fecha_ingreso es TIMESTAMP: MySQL rechaza fechas fuera de 1970-2037
+            LocalDateTime fechaIngreso = fecha("fechaIngreso", opcional(campos, "fechaingreso"));
+            if (fechaIngreso != null && (fechaIngreso.getYear() < 1970 || fechaIngreso.getYear() > 2037)) {
+                throw new IllegalArgumentException("fechaIngreso fuera de rango (1970-2037): " + fechaIngreso);
+            }
+            String tipoEquipo = maximo("tipoEquipo", opcional(campos, "tipoequipo"), 50);
+            String costo = opcional(campos, "costoreparacion");
+
+            FilaImportacion fila = new FilaImportacion(
+                    linea,
+                    clienteId,
+                    clienteNuevo,
+                    nombre,
+                    apellidos,
+                    numero,
+                    UUID.randomUUID().toString(),
+                    marcaId,
+                    maximo("modelo", opcional(campos, "modelo"), 100),
+                    tipoEquipo != null ? tipoEquipo : "Tarjeta Electrónica",
+                    maximo("numeroSerie", opcional(campos, "numeroserie"), 100),
+                    UUID.randomUUID().toString(),
+                    tecnicoId,
+                    texto("problemaReportado", requerido(campos, "problemareportado")),
+                    fechaIngreso != null ? fechaIngreso : LocalDateTime.now(),
+                    estado,
+                    texto("diagnosticoTecnico", opcional(campos, "diagnosticotecnico")),
+                    fecha("fechaFinalizacion", opcional(campos, "fechafinalizacion")),
+                    fecha("fechaEntregaCliente", opcional(campos, "fechaentregacliente")),
+                    costo != null ? costo("costoReparacion", costo) : BigDecimal.ZERO);
+
+            if (clienteNuevo) {
+                clientes.put(numero, clienteId);
+                clientesDelBloque.add(numero);
+            }
+            return fila;
+        }
+
+        private void cerrarBloque() throws IOException {
+            if (!bloque.isEmpty()) {
+                try {
+                    repository.insertarBloque(bloque);
+                    insertadas += bloque.size();
+                    clientesNuevos += clientesDelBloque.size();
+                } catch (SQLException e) {
+                    long desde = bloque.get(0).linea();
+                    long hasta = bloque.get(bloque.size() - 1).linea();
+                    System.err.println("⚠️ Bloque revertido (líneas " + desde + "-" + hasta
+                            + "), se reintenta fila por fila: " + e.getMessage());
+                    insertarFilaPorFila();
+                }
+                bloque.clear();
+                clientesDelBloque.clear();
+            }
+
+            Map<String, Object> progreso = new LinkedHashMap<>();
+            progreso.put("tipo", "progreso");
+            progreso.put("procesadas", procesadas);
+            progreso.put("insertadas", insertadas);
+            progreso.put("errores", errores);
+            evento(progreso);
+            out.flush();
+        }
+
+        // El bloque se revirtió completo: cada fila va en su propia transacción
+        private void insertarFilaPorFila() throws IOException {
+            // id de cliente -> línea donde se debía crear, para los clientes que no se insertaron
+            Map<String, Long> clientesFallidos = new HashMap<>();
+
+            for (FilaImportacion fila : bloque) {
+                Long lineaCliente = clientesFallidos.get(fila.clienteId());
+                if (lineaCliente != null) {
+                    error(fila.linea(), "El cliente de esta fila no se insertó (ver línea " + lineaCliente + ")");
+                    continue;
+                }
+                try {
+                    repository.insertarBloque(List.of(fila));
+                    insertadas++;
+                    if (fila.clienteNuevo()) {
+                        clientesNuevos++;
+                    }
+                } catch (SQLException e) {
+                    if (fila.clienteNuevo()) {
+                        clientes.remove(fila.numeroCelular());
+                        clientesFallidos.put(fila.clienteId(), fila.linea());
+                    }
+                    error(fila.linea(), e.getMessage());
+                }
+            }
+        }
+
+        private void error(long linea, String mensaje) throws IOException {
+            errores++;
+            if (errores <= MAX_ERRORES_REPORTADOS) {
+                evento(Map.of("tipo", "error", "linea", linea, "mensaje", mensaje != null ? mensaje : "Fila inválida"));
+            }
+        }
+
+        private void evento(Map<String, Object> evento) throws IOException {
+            out.write(mapper.writeValueAsBytes(evento));
+            out.write('\n');
+        }
+    }
+
+    // ---- Conversión de campos ----
+
+    // "numero_celular", "numeroCelular" y "NumeroCelular" son la misma columna
+    private static String normalizar(String columna) {
+        return columna.replace("_", "").replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String opcional(Map<String, String> campos, String columna) {
+        String valor = campos.get(columna);
+        if (valor == null) {
+            return null;
+        }
+        valor = valor.trim();
+        return valor.isEmpty() ? null : valor;
+    }
+
+    private static String requerido(Map<String, String> campos, String columna) {
+        String valor = opcional(campos, columna);
+        if (valor == null) {
+            throw new IllegalArgumentException("Falta el campo " + columna);
+        }
+        return valor;
+    }
+
+    private static String maximo(String campo, String valor, int caracteres) {
+        if (valor != null && valor.length() > caracteres) {
+            throw new IllegalArgumentException(campo + " excede " + caracteres + " caracteres");
+        }
+        return valor;
+    }
+
+    // Columnas TEXT: hasta 65535 bytes
+    private static String texto(String campo, String valor) {
+        if (valor != null && valor.getBytes(StandardCharsets.UTF_8).length > 65535) {
+            throw new IllegalArgumentException(campo + " excede 65535 bytes");
+        }
+        return valor;
+    }
+
+    private static int entero(String campo, String valor) {
+        try {
+            return Integer.parseInt(valor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(campo + " inválido: " + valor);
+        }
+    }
+
+    private static BigDecimal decimal(String campo, String valor) {
+        try {
+            return new BigDecimal(valor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(campo + " inválido: " + valor);
+        }
+    }
+
+    // DECIMAL(10,2): hasta 99,999,999.99
+    private static BigDecimal costo(String campo, String valor) {
+        BigDecimal costo = decimal(campo, valor);
+        if (costo.abs().compareTo(new BigDecimal("100000000")) >= 0) {
+            throw new IllegalArgumentException(campo + " fuera de rango: " + valor);
+        }
+        return costo;
+    }
+
+    // Acepta "2024-05-01", "2024-05-01T10:30:00" y "2024-05-01 10:30:00"
+    private static LocalDateTime fecha(String campo, String valor) {
+        try {
+            return Fechas.parse(valor);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(campo + " inválida: " + valor);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.electronica.importacion.services;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lector CSV incremental (RFC 4180): lee un registro a la vez, con campos entre
+ * comillas que pueden contener comas, comillas dobles ("") y saltos de línea.
+ */
+class LectorCsv {
+
+    private final Reader reader;
+    private long linea = 0;
+    private long inicioRegistro = 0;
+    private int siguiente = -2; // -2: aún no se ha leído
+
+    LectorCsv(Reader reader) {
+        this.reader = reader;
+    }
+
+    /** Línea física donde empieza el último registro leído (desde 1). */
+    long getLinea() {
+        return inicioRegistro;
+    }
+
+    /** Siguiente registro, o null al terminar el archivo. */
+    List<String> leer() throws IOException {
+        int c = leerCaracter();
+        if (c == -1) {
+            return null;
+        }
+        linea++;
+        inicioRegistro = linea;
+
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+
+        while (true) {
+            if (entreComillas) {
+                if (c == -1) {
+                    throw new IOException("Comillas sin cerrar en la línea " + linea);
+                }
+                if (c == '"') {
+                    int d = leerCaracter();
+                    if (d == '"') {
+                        campo.append('"');
+                    } else {
+                        entreComillas = false;
+                        c = d;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') {
+                        linea++;
+                    }
+                    campo.append((char) c);
+                }
+            } else if (c == '"' && campo.length() == 0) {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    int d = leerCaracter();
+                    if (d != '\n') {
+                        siguiente = d;
+                    }
+                }
+                campos.add(campo.toString());
+                break;
+            } else {
+                campo.append((char) c);
+            }
+            c = leerCaracter();
+        }
+        return campos;
+    }
+
+    private int leerCaracter() throws IOException {
+        if (siguiente != -2) {
+            int c = siguiente;
+            siguiente = -2;
+            return c;
+        }
+        return reader.read();
+    }
+}
@@ -3,6 +3,7 @@ package com.electronica.inventario.repository;
 import com.electronica.inventario.models.Refaccion;
 
 import javax.sql.DataSource;
+import java.io.UncheckedIOException;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -41,6 +42,45 @@ public class RefaccionRepository {
         return refacciones;
     }
 
+    /**
+     * Recorre el inventario entregando cada refacción conforme llega de MySQL,
+     * sin acumularlas en memoria.
+     */
+    public void forEach(java.util.function.Consumer<Refaccion> consumer) {
+        String sql = "SELECT * FROM inventario_refacciones";
+
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY)) {
+
+            // Integer.MIN_VALUE activa el modo streaming del driver de MySQL (fila por fila)
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Refaccion r = new Refaccion();
+                    r.setId(rs.getString("id"));
+                    r.setNombrePieza(rs.getString("nombre_pieza"));
+                    r.setCategoria(rs.getString("categoria"));
+                    r.setStockActual(rs.getInt("stock_actual"));
+                    r.setStockMinimo(rs.getInt("stock_minimo"));
+                    r.setUnidadMedida(rs.getString("unidad_medida"));
+                    r.setCostoUnitario(rs.getBigDecimal("costo_unitario"));
+                    try {
+                        consumer.accept(r);
+                    } catch (UncheckedIOException e) {
+                        // El cliente se desconectó: se cancela la consulta para que cerrar el
+                        // ResultSet no tenga que leer todas las filas restantes
+                        stmt.cancel();
+                        throw e;
+                    }
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al listar refacciones", e);
+        }
+    }
+
     public java.util.Optional<Refaccion> findById(String id) {
         String sql = "SELECT * FROM inventario_refacciones WHERE id = ?";
         try (Connection conn = dataSource.getConnection();
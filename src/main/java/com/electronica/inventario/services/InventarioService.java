@@ -1,5 +1,6 @@
 package com.electronica.inventario.services;
 
+import com.electronica.config.JsonStreaming;
 import com.electronica.inventario.models.Refaccion;
 import com.electronica.inventario.models.TarjetaVenta;
 import com.electronica.inventario.repository.RefaccionRepository;
@@ -7,6 +8,8 @@ import com.electronica.inventario.repository.TarjetaVentaRepository;
 import io.javalin.http.Context;
 
 import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -22,15 +25,13 @@ public class InventarioService {
 
     // --- REFACCIONES ---
     public void getAllRefacciones(Context ctx) {
+        if (JsonStreaming.solicitado(ctx)) {
+            JsonStreaming.lista(ctx, gen -> refaccionRepo.forEach(r -> JsonStreaming.escribir(gen, toProducto(r))));
+            return;
+        }
+
         try {
-            var refacciones = refaccionRepo.findAll().stream().map(r -> Map.of(
-                    "id", r.getId(),
-                    "nombreProducto", r.getNombrePieza(),
-                    "categoria", r.getCategoria(),
-                    "cantidad", r.getStockActual(),
-                    "unidad", r.getUnidadMedida(),
-                    "precioUnitario", r.getCostoUnitario(),
-                    "stockMinimo", r.getStockMinimo())).toList();
+            var refacciones = refaccionRepo.findAll().stream().map(InventarioService::toProducto).toList();
 
             ctx.json(Map.of(
                     "success", true,
@@ -45,21 +46,24 @@ public class InventarioService {
             String id = ctx.pathParam("id");
             Refaccion r = refaccionRepo.findById(id).orElseThrow(() -> new RuntimeException("Producto no encontrado"));
 
-            Map<String, Object> data = Map.of(
-                    "id", r.getId(),
-                    "nombreProducto", r.getNombrePieza(),
-                    "categoria", r.getCategoria(),
-                    "cantidad", r.getStockActual(),
-                    "unidad", r.getUnidadMedida(),
-                    "precioUnitario", r.getCostoUnitario(),
-                    "stockMinimo", r.getStockMinimo());
-
-            ctx.json(Map.of("success", true, "data", data));
+            ctx.json(Map.of("success", true, "data", toProducto(r)));
         } catch (Exception e) {
             ctx.status(404).json(Map.of("success", false, "message", e.getMessage()));
         }
     }
 
+    // Formato de producto que espera el frontend
+    private static Map<String, Object> toProducto(Refaccion r) {
+        return Map.of(
+                "id", r.getId(),
+                "nombreProducto", r.getNombrePieza(),
+                "categoria", r.getCategoria(),
+                "cantidad", r.getStockActual(),
+                "unidad", r.getUnidadMedida(),
+                "precioUnitario", r.getCostoUnitario(),
+                "stockMinimo", r.getStockMinimo());
+    }
+
     public void createRefaccion(Context ctx) {
         try {
             Map<String, Object> body = ctx.bodyAsClass(Map.class);
@@ -182,39 +186,60 @@ public class InventarioService {
     }
 
     /**
-     * Registra el uso de un material en un servicio
+     * Registra el uso de materiales en un servicio
      * POST /api/productos/uso
      * Body: { productoId, servicioId, cantidad }
+     * o bien: { servicioId, materiales: [ { productoId, cantidad }, ... ] }
+     *
+     * Todos los materiales se descuentan en una sola transacción: si alguno no
+     * tiene stock suficiente no se registra ninguno.
      */
     public void registrarUsoMaterial(Context ctx) {
         try {
             Map<String, Object> body = ctx.bodyAsClass(Map.class);
-
-            String materialId = (String) body.get("productoId");
             String servicioId = (String) body.get("servicioId");
-            int cantidad = Integer.parseInt(body.get("cantidad").toString());
 
-            if (materialId == null || servicioId == null || cantidad <= 0) {
+            List<Map<String, Object>> items;
+            if (body.get("materiales") instanceof List<?> lista) {
+                items = (List<Map<String, Object>>) lista;
+            } else {
+                items = List.of(body);
+            }
+
+            if (servicioId == null || items.isEmpty()) {
                 ctx.status(400).json(Map.of("success", false, "message", "Datos inválidos"));
                 return;
             }
 
-            // Verificar stock disponible
-            if (!materialRepo.verificarStock(materialId, cantidad)) {
-                ctx.status(400).json(Map.of("success", false, "message", "Stock insuficiente"));
-                return;
+            // Si el mismo material viene repetido se suman las cantidades
+            Map<String, Integer> cantidades = new LinkedHashMap<>();
+            for (Map<String, Object> item : items) {
+                String materialId = (String) item.get("productoId");
+                Object cantidadRaw = item.get("cantidad");
+                int cantidad = cantidadRaw != null ? Integer.parseInt(cantidadRaw.toString()) : 0;
+
+                if (materialId == null || cantidad <= 0) {
+                    ctx.status(400).json(Map.of("success", false, "message", "Datos inválidos"));
+                    return;
+                }
+                cantidades.merge(materialId, cantidad, Integer::sum);
             }
 
-            // Registrar uso y reducir stock
-            materialRepo.registrarUso(servicioId, materialId, cantidad);
-            materialRepo.restarStock(materialId, cantidad);
+            materialRepo.consumir(servicioId, cantidades);
 
             ctx.status(200).json(Map.of(
                     "success", true,
-                    "message", "Material registrado correctamente"));
+                    "message", cantidades.size() == 1
+                            ? "Material registrado correctamente"
+                            : cantidades.size() + " materiales registrados correctamente"));
 
         } catch (NumberFormatException e) {
             ctx.status(400).json(Map.of("success", false, "message", "Cantidad inválida"));
+        } catch (IllegalArgumentException e) {
+            // Stock insuficiente o material inexistente: no se registró nada
+            ctx.status(400).json(Map.of("success", false, "message", e.getMessage()));
+        } catch (ClassCastException e) {
+            ctx.status(400).json(Map.of("success", false, "message", "Datos inválidos"));
         } catch (Exception e) {
             ctx.status(500).json(Map.of("success", false, "message", "Error: " + e.getMessage()));
         }
@@ -1,24 +1,43 @@
 package com.electronica.marca.services;
 
+import com.electronica.config.Hash;
 import com.electronica.marca.models.Marca;
 import com.electronica.marca.repository.MarcaRepository;
 import io.javalin.http.Context;
 
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 public class MarcaService {
 
     private final MarcaRepository repository;
 
+    /**
+     * Catálogo de marcas en memoria. Es pequeño y casi no cambia, así que se carga
+     * en la primera consulta y se recarga después de cada alta.
+     */
+    private volatile Catalogo catalogo;
+
+    private record Catalogo(List<Marca> marcas, Map<Integer, String> nombres, String etag) {
+    }
+
     public MarcaService(MarcaRepository repository) {
         this.repository = repository;
     }
 
     public void getAll(Context ctx) {
         try {
+            Catalogo actual = getCatalogo();
+
+            if (Hash.noModificado(ctx, actual.etag())) {
+                return;
+            }
+
             ctx.json(Map.of(
                     "success", true,
-                    "data", repository.findAll()));
+                    "data", actual.marcas()));
         } catch (Exception e) {
             ctx.status(500).json(Map.of("success", false, "message", "Error al obtener marcas: " + e.getMessage()));
         }
@@ -37,6 +56,7 @@ public class MarcaService {
             marca.setNombreMarca(nombre);
 
             Marca saved = repository.save(marca);
+            refrescar();
             ctx.status(201).json(Map.of(
                     "success", true,
                     "data", saved));
@@ -47,4 +67,42 @@ public class MarcaService {
             ctx.status(500).json(Map.of("success", false, "message", "Error al crear marca"));
         }
     }
+
+    /**
+     * Nombre de la marca sin consultar la BD (ni hacer JOIN con marcas).
+     */
+    public Optional<String> nombreDe(int marcaId) {
+        return Optional.ofNullable(getCatalogo().nombres().get(marcaId));
+    }
+
+    public List<Marca> getMarcas() {
+        return getCatalogo().marcas();
+    }
+
+    /** Vuelve a leer el catálogo de la BD; usar si las marcas cambian por fuera de este servicio. */
+    public synchronized void refrescar() {
+        List<Marca> marcas = repository.findAll();
+
+        Map<Integer, String> nombres = new HashMap<>();
+        StringBuilder contenido = new StringBuilder();
+        for (Marca marca : marcas) {
+            nombres.put(marca.getId(), marca.getNombreMarca());
+            contenido.append(marca.getId()).append('=').append(marca.getNombreMarca()).append('\n');
+        }
+
+        catalogo = new Catalogo(List.copyOf(marcas), Map.copyOf(nombres), Hash.etag(contenido.toString()));
+    }
+
+    private Catalogo getCatalogo() {
+        Catalogo actual = catalogo;
+        if (actual == null) {
+            synchronized (this) {
+                if (catalogo == null) {
+                    refrescar();
+                }
+                actual = catalogo;
+            }
+        }
+        return actual;
+    }
 }
@@ -0,0 +1,158 @@
+package com.electronica.metrics;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * DataSource que mide cuánto tarda cada consulta y la atribuye al método que la
+ * ejecutó (p. ej. "ServicioRepository.findAll"), buscando en la pila el primer
+ * método de la aplicación fuera de config/metrics.
+ *
+ * Es un muestreo: solo una de cada DB_QUERY_SAMPLE_EVERY conexiones se mide. Las
+ * demás se devuelven tal cual, sin proxy ni recorrido de pila. En las medidas la
+ * pila se recorre una vez, al pedir la conexión (el llamador es el repositorio),
+ * y todas sus consultas se atribuyen a ese método.
+ *
+ * Se mide la llamada execute*(); en consultas en streaming la lectura de filas
+ * posterior no queda incluida.
+ */
+public class DataSourceMedido implements DataSource {
+
+    private static final StackWalker WALKER = StackWalker.getInstance();
+
+    private final DataSource delegate;
+    private final Metricas metricas;
+    private final int muestreo;
+    private final AtomicLong conexiones = new AtomicLong();
+
+    public DataSourceMedido(DataSource delegate, Metricas metricas, int muestreo) {
+        this.delegate = delegate;
+        this.metricas = metricas;
+        this.muestreo = Math.max(1, muestreo);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return medir(delegate.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return medir(delegate.getConnection(username, password));
+    }
+
+    private Connection medir(Connection conexion) {
+        if (conexiones.getAndIncrement() % muestreo != 0) {
+            return conexion;
+        }
+        return envolver(conexion, Connection.class, origen());
+    }
+
+    private <T> T envolver(T objetivo, Class<T> tipo, String origen) {
+        return tipo.cast(Proxy.newProxyInstance(
+                tipo.getClassLoader(),
+                new Class<?>[] { tipo },
+                (proxy, method, args) -> invocar(objetivo, method, args, origen)));
+    }
+
+    private Object invocar(Object objetivo, Method method, Object[] args, String origen) throws Throwable {
+        String nombre = method.getName();
+        boolean ejecuta = nombre.startsWith("execute") && objetivo instanceof Statement;
+        long inicio = ejecuta ? System.nanoTime() : 0;
+
+        Object resultado;
+        try {
+            resultado = method.invoke(objetivo, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        } finally {
+            if (ejecuta) {
+                metricas.registrarConsulta(origen, System.nanoTime() - inicio);
+            }
+        }
+
+        // Los statements que crea la conexión también se miden
+        if (resultado instanceof CallableStatement cs && method.getReturnType() == CallableStatement.class) {
+            return envolver(cs, CallableStatement.class, origen);
+        }
+        if (resultado instanceof PreparedStatement ps && method.getReturnType() == PreparedStatement.class) {
+            return envolver(ps, PreparedStatement.class, origen);
+        }
+        if (resultado instanceof Statement st && method.getReturnType() == Statement.class) {
+            return envolver(st, Statement.class, origen);
+        }
+        return resultado;
+    }
+
+    private static String origen() {
+        return WALKER.walk(frames -> frames
+                .filter(f -> {
+                    String clase = f.getClassName();
+                    return clase.startsWith("com.electronica.")
+                            && !clase.startsWith("com.electronica.metrics.")
+                            && !clase.startsWith("com.electronica.config.");
+                })
+                .findFirst()
+                .map(f -> {
+                    String clase = f.getClassName();
+                    String simple = clase.substring(clase.lastIndexOf('.') + 1);
+                    int lambda = simple.indexOf('$');
+                    return (lambda > 0 ? simple.substring(0, lambda) : simple) + "." + nombreMetodo(f.getMethodName());
+                })
+                .orElse("desconocido"));
+    }
+
+    // "lambda$getAll$0" -> "getAll"
+    private static String nombreMetodo(String metodo) {
+        if (metodo.startsWith("lambda$")) {
+            int fin = metodo.indexOf('$', 7);
+            return fin > 0 ? metodo.substring(7, fin) : metodo;
+        }
+        return metodo;
+    }
+
+    // ---- Delegación ----
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return delegate.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || delegate.isWrapperFor(iface);
+    }
+}
@@ -0,0 +1,320 @@
+package com.electronica.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import io.javalin.http.Context;
+import org.HdrHistogram.Histogram;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Registro de métricas de la API, expuesto en /api/metrics en formato de texto
+ * de Prometheus:
+ * - peticiones HTTP por ruta (conteo por status y percentiles de latencia)
+ * - tiempos de consulta por método de repositorio (ver DataSourceMedido)
+ * - pool de Hikari (conexiones activas/inactivas/en espera, tiempo para obtener una)
+ * - JVM (heap, recolecciones de GC, hilos)
+ *
+ * Los percentiles son del último minuto (ventana deslizante, ver Temporizador)
+ * y leerlos no reinicia nada; los contadores y sumas son acumulados desde el arranque.
+ */
+public class Metricas {
+
+    private static final double[] CUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+    // reportePool() mira los últimos 5 minutos, con muestras de los acumulados cada 10 s
+    private static final long VENTANA_POOL_NANOS = 300_000_000_000L;
+    private static final long MUESTRA_POOL_NANOS = 10_000_000_000L;
+
+    private final Map<String, Temporizador> peticiones = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> peticionesPorStatus = new ConcurrentHashMap<>();
+    private final Map<String, Temporizador> consultas = new ConcurrentHashMap<>();
+
+    private final Temporizador adquisicionConexion = new Temporizador();
+    private final Temporizador usoConexion = new Temporizador();
+    private final LongAdder timeoutsConexion = new LongAdder();
+    private volatile PoolStats poolStats;
+    private volatile IntSupplier enEsperaBd;
+
+    // Para reportePool(): conexiones prestadas ahora, el máximo desde la última muestra y
+    // muestras de los acumulados. Leer el reporte no reinicia nada, así dos consultas
+    // seguidas (de quien sea) ven la misma ventana.
+    private final AtomicInteger enUso = new AtomicInteger();
+    private final AtomicInteger picoEnUso = new AtomicInteger();
+    private final Deque<MuestraPool> muestrasPool = new ArrayDeque<>();
+    private volatile long proximaMuestraNanos;
+
+    // pico: máximo de conexiones prestadas entre la muestra anterior y esta
+    private record MuestraPool(long nanos, long cuenta, double usoSegundos, double esperaSegundos,
+            long timeouts, int pico) {
+    }
+
+    public Metricas() {
+        long ahora = System.nanoTime();
+        muestrasPool.add(new MuestraPool(ahora, 0, 0, 0, 0, 0));
+        proximaMuestraNanos = ahora + MUESTRA_POOL_NANOS;
+    }
+
+    // ---- HTTP ----
+
+    /** Para config.requestLogger.http(...): se llama al terminar cada petición. */
+    public void registrarPeticion(Context ctx, Float duracionMs) {
+        String ruta;
+        try {
+            ruta = ctx.endpointHandlerPath();
+        } catch (Exception e) {
+            ruta = null;
+        }
+        if (ruta == null || ruta.isEmpty()) {
+            // 404 y similares: no se usa la URL real para no crear una serie por cada ruta inventada
+            ruta = "sin_ruta";
+        }
+
+        String metodo = ctx.method().name();
+        String etiquetas = "method=\"" + metodo + "\",route=\"" + escapar(ruta) + "\"";
+
+        peticiones.computeIfAbsent(etiquetas, k -> new Temporizador())
+                .registrarMicros((long) (duracionMs * 1000));
+        peticionesPorStatus.computeIfAbsent(etiquetas + ",status=\"" + ctx.statusCode() + "\"", k -> new LongAdder())
+                .increment();
+    }
+
+    // ---- BASE DE DATOS ----
+
+    public void registrarConsulta(String origen, long nanos) {
+        consultas.computeIfAbsent("origen=\"" + escapar(origen) + "\"", k -> new Temporizador())
+                .registrarNanos(nanos);
+    }
+
+    /** Se pasa a HikariConfig.setMetricsTrackerFactory antes de crear el pool. */
+    public MetricsTrackerFactory hikariTrackerFactory() {
+        return (poolName, stats) -> {
+            this.poolStats = stats;
+            return new IMetricsTracker() {
+                @Override
+                public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                    adquisicionConexion.registrarNanos(elapsedAcquiredNanos);
+                    picoEnUso.accumulateAndGet(enUso.incrementAndGet(), Math::max);
+                }
+
+                @Override
+                public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                    usoConexion.registrarMicros(elapsedBorrowedMillis * 1000);
+                    enUso.decrementAndGet();
+                    if (System.nanoTime() >= proximaMuestraNanos) {
+                        muestrearPool();
+                    }
+                }
+
+                @Override
+                public void recordConnectionTimeout() {
+                    timeoutsConexion.increment();
+                }
+            };
+        };
+    }
+
+    /** Peticiones esperando turno en BoundedDataSource (modo hilos virtuales). */
+    public void setEnEsperaBd(IntSupplier enEsperaBd) {
+        this.enEsperaBd = enEsperaBd;
+    }
+
+    // ---- DIMENSIONAMIENTO DEL POOL ----
+
+    /**
+     * Tamaño de pool recomendado según lo observado en los últimos 5 minutos
+     * (desde la muestra más reciente que cae antes del inicio de la ventana).
+     *
+     * Por la ley de Little, las conexiones ocupadas en promedio son
+     * (conexiones pedidas por segundo) × (tiempo que se retiene cada una). Se
+     * recomienda ese valor con 50% de margen para los picos. Si el pool llegó a
+     * su máximo o hubo timeouts, la demanda observada está recortada por el
+     * propio pool y se recomienda crecer al menos un 50%.
+     *
+     * Más conexiones no ayudan si MySQL no tiene núcleos para atenderlas: como
+     * referencia, no pasar de (núcleos del servidor MySQL × 2) + 1.
+     */
+    public synchronized Map<String, Object> reportePool() {
+        muestrearPool();
+        long ahora = System.nanoTime();
+        MuestraPool base = muestrasPool.peekFirst();
+        int pico = picoEnUso.get();
+        for (MuestraPool muestra : muestrasPool) {
+            if (muestra != base) {
+                pico = Math.max(pico, muestra.pico());
+            }
+        }
+
+        double ventanaSegundos = Math.max(1e-3, (ahora - base.nanos()) / 1e9);
+        long prestamos = usoConexion.getCuenta() - base.cuenta();
+        double usoPromedioMs = prestamos == 0 ? 0
+                : (usoConexion.getSumaSegundos() - base.usoSegundos()) * 1000 / prestamos;
+        double esperaPromedioMs = prestamos == 0 ? 0
+                : (adquisicionConexion.getSumaSegundos() - base.esperaSegundos()) * 1000 / prestamos;
+        double porSegundo = prestamos / ventanaSegundos;
+        double ocupadasPromedio = porSegundo * usoPromedioMs / 1000;
+        long nuevosTimeouts = timeoutsConexion.sum() - base.timeouts();
+
+        PoolStats stats = poolStats;
+        int maximo = stats != null ? stats.getMaxConnections() : 0;
+        boolean saturado = nuevosTimeouts > 0 || (maximo > 0 && pico >= maximo);
+
+        int recomendado = Math.max(2, (int) Math.ceil(ocupadasPromedio * 1.5));
+        if (saturado) {
+            recomendado = Math.max(recomendado, maximo + (maximo + 1) / 2);
+        }
+
+        String diagnostico;
+        if (prestamos == 0) {
+            diagnostico = "Sin actividad en la ventana; vuelve a consultar con carga real";
+        } else if (saturado) {
+            diagnostico = "El pool llegó a su máximo: sube DB_POOL_MAX_SIZE o revisa las consultas más lentas en /api/metrics";
+        } else if (recomendado < maximo) {
+            diagnostico = "El pool está holgado; un perfil más chico libera conexiones de MySQL";
+        } else {
+            diagnostico = "El tamaño actual es adecuado para la carga observada";
+        }
+
+        Map<String, Object> reporte = new LinkedHashMap<>();
+        reporte.put("ventanaSegundos", Math.round(ventanaSegundos));
+        reporte.put("prestamosPorSegundo", redondear(porSegundo));
+        reporte.put("usoPromedioMs", redondear(usoPromedioMs));
+        reporte.put("esperaPromedioMs", redondear(esperaPromedioMs));
+        reporte.put("conexionesOcupadasPromedio", redondear(ocupadasPromedio));
+        reporte.put("picoEnUso", pico);
+        reporte.put("timeouts", nuevosTimeouts);
+        reporte.put("tamanoActual", maximo);
+        reporte.put("tamanoRecomendado", recomendado);
+        reporte.put("diagnostico", diagnostico);
+        return reporte;
+    }
+
+    // Cada MUESTRA_POOL_NANOS como mucho; se descartan las que ya no hacen falta como base de la ventana
+    private synchronized void muestrearPool() {
+        long ahora = System.nanoTime();
+        if (ahora < proximaMuestraNanos) {
+            return;
+        }
+        muestrasPool.addLast(new MuestraPool(ahora, usoConexion.getCuenta(), usoConexion.getSumaSegundos(),
+                adquisicionConexion.getSumaSegundos(), timeoutsConexion.sum(), picoEnUso.getAndSet(enUso.get())));
+        while (muestrasPool.size() > 1) {
+            MuestraPool primera = muestrasPool.pollFirst();
+            if (muestrasPool.peekFirst().nanos() > ahora - VENTANA_POOL_NANOS) {
+                muestrasPool.addFirst(primera);
+                break;
+            }
+        }
+        proximaMuestraNanos = ahora + MUESTRA_POOL_NANOS;
+    }
+
+    private static double redondear(double valor) {
+        return Math.round(valor * 100) / 100.0;
+    }
+
+    // ---- EXPORTAR ----
+
+    public synchronized String exportarPrometheus() {
+        StringBuilder sb = new StringBuilder(8192);
+
+        contador(sb, "http_requests_total", "Peticiones HTTP atendidas", peticionesPorStatus);
+        resumen(sb, "http_request_duration_seconds", "Latencia de peticiones HTTP por ruta", peticiones);
+        resumen(sb, "db_query_duration_seconds",
+                "Duración de consultas por método que las ejecuta (muestra, ver DB_QUERY_SAMPLE_EVERY)", consultas);
+
+        PoolStats stats = poolStats;
+        if (stats != null) {
+            gauge(sb, "hikaricp_connections_active", "Conexiones en uso", stats.getActiveConnections());
+            gauge(sb, "hikaricp_connections_idle", "Conexiones libres", stats.getIdleConnections());
+            gauge(sb, "hikaricp_connections_pending", "Hilos esperando una conexión", stats.getPendingThreads());
+            gauge(sb, "hikaricp_connections", "Conexiones abiertas", stats.getTotalConnections());
+            gauge(sb, "hikaricp_connections_max", "Tamaño máximo del pool", stats.getMaxConnections());
+        }
+        resumen(sb, "hikaricp_connection_acquire_seconds", "Tiempo para obtener una conexión del pool",
+                Map.of("", adquisicionConexion));
+        resumen(sb, "hikaricp_connection_usage_seconds", "Tiempo que se retiene una conexión",
+                Map.of("", usoConexion));
+        encabezado(sb, "hikaricp_connection_timeout_total", "Peticiones que no obtuvieron conexión a tiempo", "counter");
+        sb.append("hikaricp_connection_timeout_total ").append(timeoutsConexion.sum()).append('\n');
+
+        IntSupplier espera = enEsperaBd;
+        if (espera != null) {
+            gauge(sb, "db_concurrency_waiting", "Peticiones esperando turno para la BD", espera.getAsInt());
+        }
+
+        jvm(sb);
+        return sb.toString();
+    }
+
+    private void jvm(StringBuilder sb) {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        gauge(sb, "jvm_memory_heap_used_bytes", "Heap usado", heap.getUsed());
+        gauge(sb, "jvm_memory_heap_committed_bytes", "Heap reservado", heap.getCommitted());
+        gauge(sb, "jvm_memory_heap_max_bytes", "Heap máximo", heap.getMax());
+
+        encabezado(sb, "jvm_gc_collections_total", "Recolecciones de basura", "counter");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            sb.append("jvm_gc_collections_total{gc=\"").append(escapar(gc.getName())).append("\"} ")
+                    .append(gc.getCollectionCount()).append('\n');
+        }
+        encabezado(sb, "jvm_gc_collection_seconds_total", "Tiempo total en recolección de basura", "counter");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            sb.append("jvm_gc_collection_seconds_total{gc=\"").append(escapar(gc.getName())).append("\"} ")
+                    .append(gc.getCollectionTime() / 1000.0).append('\n');
+        }
+
+        gauge(sb, "jvm_threads_live", "Hilos de plataforma vivos", ManagementFactory.getThreadMXBean().getThreadCount());
+    }
+
+    private static void contador(StringBuilder sb, String nombre, String ayuda, Map<String, LongAdder> series) {
+        encabezado(sb, nombre, ayuda, "counter");
+        for (Map.Entry<String, LongAdder> e : new TreeMap<>(series).entrySet()) {
+            sb.append(nombre).append('{').append(e.getKey()).append("} ").append(e.getValue().sum()).append('\n');
+        }
+    }
+
+    private static void resumen(StringBuilder sb, String nombre, String ayuda, Map<String, Temporizador> series) {
+        encabezado(sb, nombre, ayuda, "summary");
+        for (Map.Entry<String, Temporizador> e : new TreeMap<>(series).entrySet()) {
+            String etiquetas = e.getKey();
+            String separador = etiquetas.isEmpty() ? "" : ",";
+            Temporizador t = e.getValue();
+            Histogram ventana = t.ventana();
+
+            for (double q : CUANTILES) {
+                double valor = ventana.getTotalCount() == 0 ? Double.NaN
+                        : ventana.getValueAtPercentile(q * 100) / 1_000_000.0;
+                sb.append(nombre).append('{').append(etiquetas).append(separador)
+                        .append("quantile=\"").append(q).append("\"} ").append(valor).append('\n');
+            }
+            String llaves = etiquetas.isEmpty() ? "" : "{" + etiquetas + "}";
+            sb.append(nombre).append("_sum").append(llaves).append(' ').append(t.getSumaSegundos()).append('\n');
+            sb.append(nombre).append("_count").append(llaves).append(' ').append(t.getCuenta()).append('\n');
+        }
+    }
+
+    private static void gauge(StringBuilder sb, String nombre, String ayuda, long valor) {
+        encabezado(sb, nombre, ayuda, "gauge");
+        sb.append(nombre).append(' ').append(valor).append('\n');
+    }
+
+    private static void encabezado(StringBuilder sb, String nombre, String ayuda, String tipo) {
+        sb.append("# HELP ").append(nombre).append(' ').append(ayuda).append('\n');
+        sb.append("# TYPE ").append(nombre).append(' ').append(tipo).append('\n');
+    }
+
+    private static String escapar(String valor) {
+        return valor.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
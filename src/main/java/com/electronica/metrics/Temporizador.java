@@ -0,0 +1,93 @@
+package com.electronica.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencias de una operación: conteo y suma acumulados desde el inicio, y
+ * percentiles (HdrHistogram, en microsegundos) del último minuto.
+ *
+ * El minuto es una ventana deslizante de 6 cubetas de 10 s que rotan con el
+ * tiempo, no con las lecturas: varios scrapers (o un curl a mano) ven los mismos
+ * percentiles sin quitarse muestras. Registrar no bloquea salvo al cambiar de
+ * cubeta, una vez cada 10 s.
+ */
+public class Temporizador {
+
+    private static final int CUBETAS = 6;
+    private static final long CUBETA_NANOS = 10_000_000_000L;
+
+    private final Recorder recorder = new Recorder(3);
+    private final LongAdder cuenta = new LongAdder();
+    private final LongAdder sumaMicros = new LongAdder();
+
+    // cubetas[actual] recibe lo que se vacía del recorder; las demás son los 50 s anteriores
+    private final Histogram[] cubetas = new Histogram[CUBETAS];
+    private int actual;
+    private volatile long siguienteRotacion = System.nanoTime() + CUBETA_NANOS;
+
+    public Temporizador() {
+        for (int i = 0; i < CUBETAS; i++) {
+            cubetas[i] = new Histogram(3);
+        }
+    }
+
+    public void registrarNanos(long nanos) {
+        registrarMicros(Math.max(0, nanos / 1_000));
+    }
+
+    public void registrarMicros(long micros) {
+        recorder.recordValue(micros);
+        cuenta.increment();
+        sumaMicros.add(micros);
+        if (System.nanoTime() - siguienteRotacion >= 0) {
+            avanzar(false);
+        }
+    }
+
+    public long getCuenta() {
+        return cuenta.sum();
+    }
+
+    public double getSumaSegundos() {
+        return sumaMicros.sum() / 1_000_000.0;
+    }
+
+    /** Histograma del último minuto. Leerlo no cambia lo que ven las lecturas siguientes. */
+    synchronized Histogram ventana() {
+        avanzar(true);
+        Histogram total = new Histogram(3);
+        for (Histogram cubeta : cubetas) {
+            total.add(cubeta);
+        }
+        return total;
+    }
+
+    // Vacía el recorder en la cubeta actual y rota las que ya vencieron
+    private synchronized void avanzar(boolean siempre) {
+        long ahora = System.nanoTime();
+        boolean toca = ahora - siguienteRotacion >= 0;
+        if (!toca && !siempre) {
+            return;
+        }
+        cubetas[actual].add(recorder.getIntervalHistogram());
+        if (!toca) {
+            return;
+        }
+        if (ahora - siguienteRotacion >= CUBETAS * CUBETA_NANOS) {
+            // Sin registros en más de un minuto: todo lo anterior ya salió de la ventana
+            for (Histogram cubeta : cubetas) {
+                cubeta.reset();
+            }
+            siguienteRotacion = ahora + CUBETA_NANOS;
+            return;
+        }
+        while (ahora - siguienteRotacion >= 0) {
+            actual = (actual + 1) % CUBETAS;
+            cubetas[actual].reset();
+            siguienteRotacion += CUBETA_NANOS;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.electronica.recepcion.routes;
+
+import com.electronica.config.JwtConfig;
+import com.electronica.recepcion.services.RecepcionService;
+import io.javalin.Javalin;
+
+public class RecepcionRoutes {
+
+    public static void register(Javalin app, RecepcionService service) {
+
+        app.before("/api/intake", JwtConfig::validateToken);
+
+        // Cliente + equipo + servicio en una sola transacción
+        app.post("/api/intake", service::crear);
+    }
+}
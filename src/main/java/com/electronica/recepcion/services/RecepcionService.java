@@ -0,0 +1,175 @@
+package com.electronica.recepcion.services;
+
+import com.electronica.cliente.models.Cliente;
+import com.electronica.cliente.repository.ClienteRepository;
+import com.electronica.config.UnidadDeTrabajo;
+import com.electronica.equipo.models.Equipo;
+import com.electronica.equipo.repository.EquipoRepository;
+import com.electronica.servicio.models.Servicio;
+import com.electronica.servicio.repository.ServicioRepository;
+import io.javalin.http.Context;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * POST /api/intake
+ * Recepción de un equipo en mostrador: cliente + equipo + servicio en una sola
+ * petición, una sola conexión y una sola transacción. Si algo falla (p. ej. una
+ * marca o técnico inexistente) no queda ningún registro a medias.
+ *
+ * Cuerpo:
+ * {
+ *   "cliente":  { "nombre", "apellidos", "numeroCelular" }   o   "clienteId": "...",
+ *   "equipo":   { "marcaId", "modelo", "tipoEquipo", "numeroSerie" },
+ *   "servicio": { "tecnicoId", "problemaReportado" }
+ * }
+ *
+ * Si ya existe un cliente con ese número se reutiliza (y se reactiva si estaba
+ * eliminado), igual que en POST /api/clientes.
+ */
+public class RecepcionService {
+
+    private final UnidadDeTrabajo unidadDeTrabajo;
+    private final ClienteRepository clienteRepository;
+    private final EquipoRepository equipoRepository;
+    private final ServicioRepository servicioRepository;
+
+    private record Recepcion(Cliente cliente, boolean clienteNuevo, Equipo equipo, Servicio servicio) {
+    }
+
+    public RecepcionService(UnidadDeTrabajo unidadDeTrabajo, ClienteRepository clienteRepository,
+            EquipoRepository equipoRepository, ServicioRepository servicioRepository) {
+        this.unidadDeTrabajo = unidadDeTrabajo;
+        this.clienteRepository = clienteRepository;
+        this.equipoRepository = equipoRepository;
+        this.servicioRepository = servicioRepository;
+    }
+
+    public void crear(Context ctx) {
+        try {
+            Map<String, Object> body = ctx.bodyAsClass(Map.class);
+
+            // Todo se valida antes de abrir la transacción
+            String clienteId = body.get("clienteId") != null ? String.valueOf(body.get("clienteId")) : null;
+            Cliente datosCliente = clienteId == null ? leerCliente(seccion(body, "cliente")) : null;
+            Equipo equipo = leerEquipo(seccion(body, "equipo"));
+            Servicio servicio = leerServicio(seccion(body, "servicio"));
+
+            Recepcion recepcion = unidadDeTrabajo.ejecutar(() -> {
+                Cliente cliente;
+                boolean nuevo = false;
+                if (clienteId != null) {
+                    cliente = clienteRepository.findById(clienteId)
+                            .orElseThrow(() -> new IllegalArgumentException("El cliente no existe"));
+                } else {
+                    Optional<Cliente> existente = clienteRepository.findByNumero(datosCliente.getNumeroCelular());
+                    if (existente.isEmpty()) {
+                        cliente = clienteRepository.save(datosCliente);
+                        nuevo = true;
+                    } else if (existente.get().getDeletedAt() != null) {
+                        cliente = new Cliente(existente.get().getId(), datosCliente.getNombre(),
+                                datosCliente.getApellidos(), datosCliente.getNumeroCelular(), null);
+                        clienteRepository.reactivate(cliente.getId());
+                        clienteRepository.update(cliente.getNumeroCelular(), cliente);
+                    } else {
+                        cliente = existente.get();
+                    }
+                }
+
+                equipo.setClienteId(cliente.getId());
+                equipoRepository.save(equipo);
+
+                servicio.setEquipoId(equipo.getId());
+                servicioRepository.save(servicio);
+
+                return new Recepcion(cliente, nuevo, equipo, servicio);
+            });
+
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("cliente", Map.of(
+                    "id", recepcion.cliente().getId(),
+                    "nombre", recepcion.cliente().getNombre(),
+                    "apellidos", recepcion.cliente().getApellidos(),
+                    "numeroCelular", recepcion.cliente().getNumeroCelular()));
+            data.put("clienteNuevo", recepcion.clienteNuevo());
+            data.put("equipo", recepcion.equipo());
+            data.put("servicio", recepcion.servicio());
+
+            ctx.status(201).json(Map.of(
+                    "success", true,
+                    "message", "Recepción registrada",
+                    "data", data));
+
+        } catch (IllegalArgumentException e) {
+            ctx.status(400).json(Map.of("success", false, "message", e.getMessage()));
+        } catch (ClassCastException e) {
+            ctx.status(400).json(Map.of("success", false, "message", "Formato de datos inválido"));
+        } catch (Exception e) {
+            e.printStackTrace();
+            ctx.status(500).json(Map.of("success", false, "message",
+                    "Error al registrar la recepción: " + e.getMessage()));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> seccion(Map<String, Object> body, String nombre) {
+        Object valor = body.get(nombre);
+        if (!(valor instanceof Map)) {
+            throw new IllegalArgumentException("Falta la sección '" + nombre + "'");
+        }
+        return (Map<String, Object>) valor;
+    }
+
+    private static Cliente leerCliente(Map<String, Object> datos) {
+        String nombre = (String) datos.get("nombre");
+        String apellidos = (String) datos.get("apellidos");
+        String numero = (String) datos.get("numeroCelular");
+
+        if (nombre == null || nombre.isEmpty())
+            throw new IllegalArgumentException("El nombre es obligatorio");
+
+        if (apellidos == null || apellidos.isEmpty())
+            throw new IllegalArgumentException("Los apellidos son obligatorios");
+
+        if (numero == null || numero.isEmpty())
+            throw new IllegalArgumentException("El número de celular es obligatorio");
+
+        return new Cliente(nombre, apellidos, numero);
+    }
+
+    private static Equipo leerEquipo(Map<String, Object> datos) {
+        if (!(datos.get("marcaId") instanceof Number marcaId)) {
+            throw new IllegalArgumentException("Marca ID es obligatorio");
+        }
+        String tipoEquipo = (String) datos.get("tipoEquipo");
+
+        Equipo equipo = new Equipo();
+        equipo.setId(UUID.randomUUID().toString());
+        equipo.setMarcaId(marcaId.intValue());
+        equipo.setModelo((String) datos.get("modelo"));
+        equipo.setTipoEquipo(tipoEquipo != null ? tipoEquipo : "Tarjeta Electrónica");
+        equipo.setNumeroSerie((String) datos.get("numeroSerie"));
+        return equipo;
+    }
+
+    private static Servicio leerServicio(Map<String, Object> datos) {
+        Object tecnicoId = datos.get("tecnicoId");
+        String problema = (String) datos.get("problemaReportado");
+
+        if (tecnicoId == null || problema == null || problema.isEmpty()) {
+            throw new IllegalArgumentException("Técnico y problema reportado son obligatorios");
+        }
+
+        Servicio servicio = new Servicio();
+        servicio.setId(UUID.randomUUID().toString());
+        servicio.setTecnicoId(String.valueOf(tecnicoId));
+        servicio.setProblemaReportado(problema);
+        servicio.setFechaIngreso(LocalDateTime.now());
+        servicio.setEstado("PENDIENTE");
+        return servicio;
+    }
+}
@@ -0,0 +1,19 @@
+package com.electronica.servicio.models;
+
+import java.util.Set;
+
+/**
+ * Estados válidos de un servicio; los mismos del ENUM de la columna servicios.estado.
+ */
+public final class EstadoServicio {
+
+    public static final Set<String> VALORES = Set.of(
+            "PENDIENTE", "EN_PROCESO", "ESPERA_REFACCION", "FINALIZADO", "ENTREGADO", "CANCELADO");
+
+    private EstadoServicio() {
+    }
+
+    public static boolean esValido(String estado) {
+        return estado != null && VALORES.contains(estado);
+    }
+}
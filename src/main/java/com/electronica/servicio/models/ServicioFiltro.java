@@ -0,0 +1,120 @@
+package com.electronica.servicio.models;
+
+import com.electronica.config.Paginacion;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filtros y cursor para el listado paginado de servicios.
+ *
+ * El cursor es la pareja (fecha_ingreso, id) del último servicio de la página
+ * anterior, codificada en base64 para que el frontend la trate como opaca. En
+ * /api/finalizado la fecha del cursor es la de finalización, salvo en el tramo de
+ * FINALIZADO sin fecha, donde es la de ingreso y el cursor lleva la marca "|s".
+ */
+public class ServicioFiltro {
+    private String estado;
+    private String tecnicoId;
+    private String clienteId;
+    private LocalDateTime desde;
+    private LocalDateTime hasta;
+    private LocalDateTime cursorFecha;
+    private String cursorId;
+    private boolean cursorSinFecha;
+    private int limite = Paginacion.LIMITE_DEFAULT;
+
+    public ServicioFiltro() {
+    }
+
+    // --- CURSOR ---
+    public static String codificarCursor(Servicio ultimo) {
+        return codificarCursor(ultimo.getFechaIngreso(), ultimo.getId());
+    }
+
+    public static String codificarCursorFinalizado(Servicio ultimo) {
+        if (ultimo.getFechaFinalizacion() == null) {
+            return Paginacion.codificarCursor(ultimo.getFechaIngreso() + "|" + ultimo.getId() + "|s");
+        }
+        return codificarCursor(ultimo.getFechaFinalizacion(), ultimo.getId());
+    }
+
+    private static String codificarCursor(LocalDateTime fecha, String id) {
+        return Paginacion.codificarCursor(fecha + "|" + id);
+    }
+
+    public void setCursor(String cursor) {
+        try {
+            String valor = Paginacion.decodificarCursor(cursor);
+            String[] partes = valor.split("\\|");
+            if (partes.length < 2 || partes.length > 3 || (partes.length == 3 && !partes[2].equals("s"))) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            this.cursorFecha = LocalDateTime.parse(partes[0]);
+            this.cursorId = partes[1];
+            this.cursorSinFecha = partes.length == 3;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+    }
+
+    // Getters and Setters
+    public String getEstado() {
+        return estado;
+    }
+
+    public void setEstado(String estado) {
+        this.estado = estado;
+    }
+
+    public String getTecnicoId() {
+        return tecnicoId;
+    }
+
+    public void setTecnicoId(String tecnicoId) {
+        this.tecnicoId = tecnicoId;
+    }
+
+    public String getClienteId() {
+        return clienteId;
+    }
+
+    public void setClienteId(String clienteId) {
+        this.clienteId = clienteId;
+    }
+
+    public LocalDateTime getDesde() {
+        return desde;
+    }
+
+    public void setDesde(LocalDateTime desde) {
+        this.desde = desde;
+    }
+
+    public LocalDateTime getHasta() {
+        return hasta;
+    }
+
+    public void setHasta(LocalDateTime hasta) {
+        this.hasta = hasta;
+    }
+
+    public LocalDateTime getCursorFecha() {
+        return cursorFecha;
+    }
+
+    public String getCursorId() {
+        return cursorId;
+    }
+
+    public boolean isCursorSinFecha() {
+        return cursorSinFecha;
+    }
+
+    public int getLimite() {
+        return limite;
+    }
+
+    public void setLimite(int limite) {
+        this.limite = Paginacion.limitar(limite);
+    }
+}
@@ -0,0 +1,32 @@
+package com.electronica.servicio.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Recibe el cambio de ingresos cada vez que un servicio entra en ENTREGADO, se
+ * corrige uno que ya estaba entregado, o uno entregado cambia de estado o se borra.
+ *
+ * El repositorio llama a antesDeConfirmar() justo antes del commit y a
+ * despuesDeConfirmar() después de avisar (o de fallar), para que el listener
+ * pueda ordenar commit + aviso respecto a sus propias lecturas de la BD.
+ */
+@FunctionalInterface
+public interface FinalizacionListener {
+
+    default void antesDeConfirmar() {
+    }
+
+    default void despuesDeConfirmar() {
+    }
+
+    /**
+     * @param anterior fecha y costo previos si el servicio ya estaba ENTREGADO, o null
+     * @param actual   fecha y costo recién guardados, o null si dejó de estar ENTREGADO
+     *                 (cambio de estado o borrado)
+     */
+    void onFinalizacion(Entrega anterior, Entrega actual);
+
+    record Entrega(LocalDateTime fechaFinalizacion, BigDecimal costo) {
+    }
+}
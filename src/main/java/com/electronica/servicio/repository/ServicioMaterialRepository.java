@@ -4,9 +4,10 @@ import com.electronica.servicio.model.ServicioMaterial;
 
 import javax.sql.DataSource;
 import java.sql.*;
-import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.UUID;
 
 public class ServicioMaterialRepository {
@@ -17,72 +18,64 @@ public class ServicioMaterialRepository {
     }
 
     /**
-     * Registra el uso de un material en un servicio
+     * Descuenta del inventario y registra en el servicio todos los materiales
+     * indicados (materialId -> cantidad), en una sola transacción.
+     *
+     * El descuento es condicional (stock_actual >= cantidad), así dos técnicos no
+     * pueden dejar el stock en negativo. Si algún material no tiene stock
+     * suficiente no se registra ninguno.
      */
-    public void registrarUso(String servicioId, String materialId, int cantidad) {
-        String sql = "INSERT INTO servicios_materiales (id, servicio_id, material_id, cantidad_usada) VALUES (?, ?, ?, ?) "
+    public void consumir(String servicioId, Map<String, Integer> cantidades) {
+        String sqlStock = "UPDATE inventario_refacciones SET stock_actual = stock_actual - ? " +
+                "WHERE id = ? AND stock_actual >= ?";
+        String sqlUso = "INSERT INTO servicios_materiales (id, servicio_id, material_id, cantidad_usada) VALUES (?, ?, ?, ?) "
                 +
                 "ON DUPLICATE KEY UPDATE cantidad_usada = cantidad_usada + ?";
 
-        try (Connection conn = dataSource.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, UUID.randomUUID().toString());
-            stmt.setString(2, servicioId);
-            stmt.setString(3, materialId);
-            stmt.setInt(4, cantidad);
-            stmt.setInt(5, cantidad); // Para el UPDATE si ya existe
-
-            stmt.executeUpdate();
-
-        } catch (SQLException e) {
-            throw new RuntimeException("Error al registrar uso de material", e);
-        }
-    }
-
-    /**
-     * Reduce el stock del material en el inventario
-     */
-    public void restarStock(String materialId, int cantidad) {
-        String sql = "UPDATE inventario_refacciones SET stock_actual = stock_actual - ? WHERE id = ?";
-
-        try (Connection conn = dataSource.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, cantidad);
-            stmt.setString(2, materialId);
+        // Orden fijo por id para que dos consumos simultáneos bloqueen filas en el mismo orden
+        List<String> materialIds = new ArrayList<>(new TreeMap<>(cantidades).keySet());
 
-            int rowsAffected = stmt.executeUpdate();
-            if (rowsAffected == 0) {
-                throw new IllegalArgumentException("Material no encontrado");
-            }
-
-        } catch (SQLException e) {
-            throw new RuntimeException("Error al reducir stock", e);
-        }
-    }
-
-    /**
-     * Verifica si hay suficiente stock antes de usar
-     */
-    public boolean verificarStock(String materialId, int cantidadRequerida) {
-        String sql = "SELECT stock_actual FROM inventario_refacciones WHERE id = ?";
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stockStmt = conn.prepareStatement(sqlStock);
+                    PreparedStatement usoStmt = conn.prepareStatement(sqlUso)) {
 
-        try (Connection conn = dataSource.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (String materialId : materialIds) {
+                    int cantidad = cantidades.get(materialId);
+                    stockStmt.setInt(1, cantidad);
+                    stockStmt.setString(2, materialId);
+                    stockStmt.setInt(3, cantidad);
+                    stockStmt.addBatch();
+                }
 
-            stmt.setString(1, materialId);
-            ResultSet rs = stmt.executeQuery();
+                int[] actualizados = stockStmt.executeBatch();
+                for (int i = 0; i < actualizados.length; i++) {
+                    if (actualizados[i] == 0) {
+                        throw new IllegalArgumentException(
+                                "Stock insuficiente o material no encontrado: " + materialIds.get(i));
+                    }
+                }
 
-            if (rs.next()) {
-                int stockActual = rs.getInt("stock_actual");
-                return stockActual >= cantidadRequerida;
+                for (String materialId : materialIds) {
+                    usoStmt.setString(1, UUID.randomUUID().toString());
+                    usoStmt.setString(2, servicioId);
+                    usoStmt.setString(3, materialId);
+                    usoStmt.setInt(4, cantidades.get(materialId));
+                    usoStmt.setInt(5, cantidades.get(materialId)); // Para el UPDATE si ya existe
+                    usoStmt.addBatch();
+                }
+                usoStmt.executeBatch();
+
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
 
-            return false;
-
         } catch (SQLException e) {
-            throw new RuntimeException("Error al verificar stock", e);
+            throw new RuntimeException("Error al registrar uso de materiales", e);
         }
     }
 
@@ -1,20 +1,50 @@
 package com.electronica.servicio.repository;
 
 import com.electronica.servicio.models.Servicio;
+import com.electronica.servicio.models.ServicioFiltro;
 
 import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public class ServicioRepository {
 
     private final DataSource dataSource;
+    // Listados y exportación: pueden ir a la réplica (ver LecturasReplica)
+    private final DataSource lecturas;
+    private FinalizacionListener finalizacionListener;
+
+    /** Cambio de estado/diagnóstico de un servicio dentro de una actualización en lote. */
+    public record Actualizacion(String id, String diagnostico, String estado, LocalDateTime fechaEstimada) {
+    }
+
+    /** Recibe cada fila de la exportación; el arreglo se reutiliza entre filas. */
+    @FunctionalInterface
+    public interface FilaExportacion {
+        void escribir(Object[] valores) throws IOException;
+    }
 
     public ServicioRepository(DataSource dataSource) {
+        this(dataSource, dataSource);
+    }
+
+    public ServicioRepository(DataSource dataSource, DataSource lecturas) {
         this.dataSource = dataSource;
+        this.lecturas = lecturas;
+    }
+
+    public void setFinalizacionListener(FinalizacionListener finalizacionListener) {
+        this.finalizacionListener = finalizacionListener;
     }
 
     public Servicio save(Servicio servicio) {
@@ -54,37 +84,71 @@ public class ServicioRepository {
         }
     }
 
+    // Proyección única de un servicio con sus datos de cliente, marca y técnico.
+    // El orden de las columnas es fijo: mapRow las lee por posición (COL_*).
+    private static final String SQL_COLUMNAS = "SELECT " +
+            "s.id, " +
+            "s.folio_servicio, " +
+            "s.equipo_id, " +
+            "s.tecnico_id, " +
+            "s.problema_reportado, " +
+            "s.fecha_ingreso, " +
+            "s.diagnostico_tecnico, " +
+            "s.estado, " +
+            "s.fecha_estimada_entrega, " +
+            "s.fecha_finalizacion, " +
+            "s.fecha_entrega_cliente, " +
+            "s.costo_reparacion, " +
+            "CONCAT(c.nombre, ' ', c.apellidos) AS nombre_cliente, " +
+            "c.numero_celular, " +
+            "m.nombre_marca AS marca, " +
+            "e.modelo, " +
+            "u.nombre_completo AS tecnico_nombre " +
+            "FROM servicios s ";
+
+    private static final int COL_ID = 1;
+    private static final int COL_FOLIO = 2;
+    private static final int COL_EQUIPO_ID = 3;
+    private static final int COL_TECNICO_ID = 4;
+    private static final int COL_PROBLEMA = 5;
+    private static final int COL_FECHA_INGRESO = 6;
+    private static final int COL_DIAGNOSTICO = 7;
+    private static final int COL_ESTADO = 8;
+    private static final int COL_FECHA_ESTIMADA = 9;
+    private static final int COL_FECHA_FINALIZACION = 10;
+    private static final int COL_FECHA_ENTREGA = 11;
+    private static final int COL_COSTO = 12;
+    private static final int COL_NOMBRE_CLIENTE = 13;
+    private static final int COL_NUMERO_CELULAR = 14;
+    private static final int COL_MARCA = 15;
+    private static final int COL_MODELO = 16;
+    private static final int COL_TECNICO_NOMBRE = 17;
+
+    // Los listados solo muestran servicios con equipo, cliente, marca y técnico
+    private static final String SQL_LISTADO = SQL_COLUMNAS +
+            "JOIN equipos e ON s.equipo_id = e.id " +
+            "JOIN clientes c ON e.cliente_id = c.id " +
+            "JOIN marcas m ON e.marca_id = m.id " +
+            "JOIN users u ON s.tecnico_id = u.id ";
+
+    // Por id se devuelve el servicio aunque le falte alguna relación (p. ej. equipo sin cliente)
+    private static final String SQL_DETALLE = SQL_COLUMNAS +
+            "LEFT JOIN equipos e ON s.equipo_id = e.id " +
+            "LEFT JOIN clientes c ON e.cliente_id = c.id " +
+            "LEFT JOIN marcas m ON e.marca_id = m.id " +
+            "LEFT JOIN users u ON s.tecnico_id = u.id " +
+            "WHERE s.id = ?";
+
     public List<Servicio> findAll() {
         List<Servicio> servicios = new ArrayList<>();
-        // Use direct JOIN to include tecnico_id which is missing in the view
-        String sql = "SELECT " +
-                "s.id AS servicio_id, " +
-                "s.folio_servicio, " +
-                "CONCAT(c.nombre, ' ', c.apellidos) AS nombre_cliente, " +
-                "c.numero_celular, " +
-                "m.nombre_marca AS marca, " +
-                "e.modelo, " +
-                "s.problema_reportado, " +
-                "s.diagnostico_tecnico, " +
-                "s.tecnico_id, " + // Added tecnico_id
-                "u.nombre_completo AS tecnico_nombre, " +
-                "s.estado, " +
-                "s.fecha_ingreso, " +
-                "s.fecha_entrega_cliente, " +
-                "s.costo_reparacion " +
-                "FROM servicios s " +
-                "JOIN equipos e ON s.equipo_id = e.id " +
-                "JOIN clientes c ON e.cliente_id = c.id " +
-                "JOIN marcas m ON e.marca_id = m.id " +
-                "JOIN users u ON s.tecnico_id = u.id " +
-                "ORDER BY s.fecha_ingreso DESC";
+        String sql = SQL_LISTADO + "ORDER BY s.fecha_ingreso DESC";
 
-        try (Connection conn = dataSource.getConnection();
+        try (Connection conn = lecturas.getConnection();
                 Statement stmt = conn.createStatement();
                 ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
-                servicios.add(mapRowToServicioView(rs));
+                servicios.add(mapRow(rs));
             }
 
         } catch (SQLException e) {
@@ -93,61 +157,417 @@ public class ServicioRepository {
         return servicios;
     }
 
-    public Optional<Servicio> findById(String id) {
-        // Use the view to get expanded details for editing too
-        // Note: The view uses 'servicio_id' instead of 'id'
-        // FIX: Join with services table to get tecnico_id which is missing in the view
-        String sql = "SELECT v.*, s.tecnico_id FROM vista_servicios_completa v JOIN servicios s ON v.servicio_id = s.id WHERE v.servicio_id = ?";
-        try (Connection conn = dataSource.getConnection();
+    /**
+     * Página del listado ordenada por (fecha_ingreso, id) descendente.
+     * Devuelve hasta limite + 1 filas para que el servicio sepa si hay otra página.
+     */
+    public List<Servicio> findPage(ServicioFiltro filtro) {
+        List<Object> params = new ArrayList<>();
+        String sql = consultaListado(filtro, params) + " LIMIT ?";
+        params.add(filtro.getLimite() + 1);
+
+        List<Servicio> servicios = new ArrayList<>();
+        try (Connection conn = lecturas.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setString(1, id);
-            ResultSet rs = stmt.executeQuery();
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    servicios.add(mapRow(rs));
+                }
+            }
 
-            if (rs.next()) {
-                return Optional.of(mapRowToServicioView(rs));
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al listar servicios", e);
+        }
+        return servicios;
+    }
+
+    /**
+     * Recorre todo el listado filtrado (sin límite de página) entregando cada fila
+     * al consumer conforme llega de MySQL, sin acumularlas en memoria.
+     */
+    public void forEachListado(ServicioFiltro filtro, Consumer<Servicio> consumer) {
+        List<Object> params = new ArrayList<>();
+        String sql = consultaListado(filtro, params);
+
+        try (Connection conn = lecturas.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY)) {
+
+            // Integer.MIN_VALUE activa el modo streaming del driver de MySQL (fila por fila)
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
             }
 
-            // Fallback: If not found in view (maybe incomplete data?), try raw table
-            // This ensures we can still edit even if joins fail (though they shouldn't with
-            // inner joins)
-            return findByIdRaw(id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    try {
+                        consumer.accept(mapRow(rs));
+                    } catch (UncheckedIOException e) {
+                        // El cliente se desconectó: se cancela la consulta para que cerrar el
+                        // ResultSet no tenga que leer todas las filas restantes
+                        stmt.cancel();
+                        throw e;
+                    }
+                }
+            }
 
         } catch (SQLException e) {
-            throw new RuntimeException("Error al buscar servicio", e);
+            throw new RuntimeException("Error al listar servicios", e);
+        }
+    }
+
+    private String consultaListado(ServicioFiltro filtro, List<Object> params) {
+        StringBuilder sql = new StringBuilder(SQL_LISTADO).append("WHERE 1 = 1 ");
+
+        if (filtro.getEstado() != null) {
+            sql.append("AND s.estado = ? ");
+            params.add(filtro.getEstado());
+        }
+        if (filtro.getTecnicoId() != null) {
+            sql.append("AND s.tecnico_id = ? ");
+            params.add(filtro.getTecnicoId());
+        }
+        if (filtro.getClienteId() != null) {
+            sql.append("AND e.cliente_id = ? ");
+            params.add(filtro.getClienteId());
+        }
+        if (filtro.getDesde() != null) {
+            sql.append("AND s.fecha_ingreso >= ? ");
+            params.add(Timestamp.valueOf(filtro.getDesde()));
+        }
+        if (filtro.getHasta() != null) {
+            sql.append("AND s.fecha_ingreso < ? ");
+            params.add(Timestamp.valueOf(filtro.getHasta()));
+        }
+        if (filtro.getCursorFecha() != null) {
+            // Keyset: continuar justo después del último servicio de la página anterior
+            Timestamp cursorFecha = Timestamp.valueOf(filtro.getCursorFecha());
+            sql.append("AND (s.fecha_ingreso < ? OR (s.fecha_ingreso = ? AND s.id < ?)) ");
+            params.add(cursorFecha);
+            params.add(cursorFecha);
+            params.add(filtro.getCursorId());
+        }
+        sql.append("ORDER BY s.fecha_ingreso DESC, s.id DESC");
+        return sql.toString();
+    }
+
+    // Exportación para contabilidad: una fila plana por servicio, en orden de ingreso
+    public static final String[] COLUMNAS_EXPORTACION = {
+            "folio", "fecha_ingreso", "estado", "cliente_nombre", "cliente_apellidos", "cliente_celular",
+            "marca", "modelo", "tipo_equipo", "numero_serie", "tecnico", "problema_reportado",
+            "diagnostico_tecnico", "fecha_finalizacion", "fecha_entrega_cliente", "costo_reparacion" };
+
+    private static final String SQL_EXPORTACION = "SELECT " +
+            "s.folio_servicio, s.fecha_ingreso, s.estado, " +
+            "c.nombre, c.apellidos, c.numero_celular, " +
+            "m.nombre_marca, e.modelo, e.tipo_equipo, e.numero_serie, " +
+            "u.nombre_completo, s.problema_reportado, s.diagnostico_tecnico, " +
+            "s.fecha_finalizacion, s.fecha_entrega_cliente, s.costo_reparacion " +
+            "FROM servicios s " +
+            "LEFT JOIN equipos e ON s.equipo_id = e.id " +
+            "LEFT JOIN clientes c ON e.cliente_id = c.id " +
+            "LEFT JOIN marcas m ON e.marca_id = m.id " +
+            "LEFT JOIN users u ON s.tecnico_id = u.id " +
+            "WHERE 1 = 1 ";
+
+    /**
+     * Recorre los servicios del rango [desde, hasta) por fecha de ingreso en modo
+     * streaming, entregando cada fila como valores sueltos (sin crear Servicio).
+     * Incluye servicios con relaciones faltantes, con esas columnas en null.
+     */
+    public void exportar(LocalDateTime desde, LocalDateTime hasta, String estado, FilaExportacion fila)
+            throws IOException {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(SQL_EXPORTACION);
+        if (desde != null) {
+            sql.append("AND s.fecha_ingreso >= ? ");
+            params.add(Timestamp.valueOf(desde));
+        }
+        if (hasta != null) {
+            sql.append("AND s.fecha_ingreso < ? ");
+            params.add(Timestamp.valueOf(hasta));
+        }
+        if (estado != null) {
+            sql.append("AND s.estado = ? ");
+            params.add(estado);
+        }
+        sql.append("ORDER BY s.fecha_ingreso, s.folio_servicio");
+
+        try (Connection conn = lecturas.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY)) {
+
+            // Modo streaming del driver de MySQL: memoria constante sin importar el tamaño
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+
+            Object[] valores = new Object[COLUMNAS_EXPORTACION.length];
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    valores[0] = rs.getInt(1);
+                    valores[1] = toLocalDateTime(rs.getTimestamp(2));
+                    for (int i = 3; i <= 13; i++) {
+                        valores[i - 1] = rs.getString(i);
+                    }
+                    valores[13] = toLocalDateTime(rs.getTimestamp(14));
+                    valores[14] = toLocalDateTime(rs.getTimestamp(15));
+                    valores[15] = rs.getBigDecimal(16);
+                    try {
+                        fila.escribir(valores);
+                    } catch (IOException e) {
+                        // El cliente se desconectó: se cancela la consulta para que cerrar el
+                        // ResultSet no tenga que leer todas las filas restantes
+                        stmt.cancel();
+                        throw e;
+                    }
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al exportar servicios", e);
+        }
+    }
+
+    /**
+     * Servicios FINALIZADO / ENTREGADO, por keyset como findPage, en dos tramos:
+     *
+     * 1. FINALIZADO sin fecha de finalización (listos para entregar; el técnico los
+     *    marca desde el diagnóstico, que no pone fecha), por (fecha_ingreso, id)
+     *    descendente. desde/hasta se aplican a fecha_ingreso.
+     * 2. FINALIZADO / ENTREGADO con fecha, por (fecha_finalizacion, id) descendente.
+     *    Se hace un rango por estado para que MySQL lea el índice
+     *    (estado, fecha_finalizacion) ya en orden y se detenga en limite + 1 filas;
+     *    con IN (...) u OR IS NULL tendría que ordenar todo el historial en cada
+     *    página. Las dos listas, ya ordenadas, se mezclan aquí.
+     *
+     * cursorSinFecha indica que el cursor todavía está en el primer tramo.
+     * Devuelve hasta limite + 1 filas para que el servicio sepa si hay otra página.
+     */
+    public List<Servicio> findFinalizados(LocalDateTime desde, LocalDateTime hasta, LocalDateTime cursorFecha,
+            String cursorId, boolean cursorSinFecha, int limite) {
+        int maximo = limite + 1;
+
+        try (Connection conn = lecturas.getConnection()) {
+            List<Servicio> servicios = new ArrayList<>(Math.min(maximo, 64));
+            if (cursorFecha == null || cursorSinFecha) {
+                servicios.addAll(finalizadosSinFecha(conn, desde, hasta, cursorFecha, cursorId, maximo));
+                if (servicios.size() >= maximo) {
+                    return servicios;
+                }
+                // El segundo tramo empieza desde el principio
+                cursorFecha = null;
+                cursorId = null;
+            }
+            servicios.addAll(finalizadosConFecha(conn, desde, hasta, cursorFecha, cursorId,
+                    maximo - servicios.size()));
+            return servicios;
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al listar servicios finalizados", e);
+        }
+    }
+
+    private List<Servicio> finalizadosSinFecha(Connection conn, LocalDateTime desde, LocalDateTime hasta,
+            LocalDateTime cursorFecha, String cursorId, int maximo) throws SQLException {
+        StringBuilder sql = new StringBuilder(SQL_LISTADO)
+                .append("WHERE s.estado = ? AND s.fecha_finalizacion IS NULL ");
+        List<Object> params = new ArrayList<>();
+        agregarRangoKeyset(sql, params, "s.fecha_ingreso", desde, hasta, cursorFecha, cursorId);
+        sql.append("ORDER BY s.fecha_ingreso DESC, s.id DESC LIMIT ?");
+        params.add(maximo);
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            return finalizadosPorEstado(stmt, "FINALIZADO", params);
+        }
+    }
+
+    private List<Servicio> finalizadosConFecha(Connection conn, LocalDateTime desde, LocalDateTime hasta,
+            LocalDateTime cursorFecha, String cursorId, int maximo) throws SQLException {
+        StringBuilder sql = new StringBuilder(SQL_LISTADO)
+                .append("WHERE s.estado = ? AND s.fecha_finalizacion IS NOT NULL ");
+        List<Object> params = new ArrayList<>();
+        agregarRangoKeyset(sql, params, "s.fecha_finalizacion", desde, hasta, cursorFecha, cursorId);
+        sql.append("ORDER BY s.fecha_finalizacion DESC, s.id DESC LIMIT ?");
+        params.add(maximo);
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            List<Servicio> finalizados = finalizadosPorEstado(stmt, "FINALIZADO", params);
+            List<Servicio> entregados = finalizadosPorEstado(stmt, "ENTREGADO", params);
+            return mezclarPorFinalizacion(finalizados, entregados, maximo);
+        }
+    }
+
+    // desde/hasta y cursor (fecha, id) descendente sobre la columna indicada
+    private static void agregarRangoKeyset(StringBuilder sql, List<Object> params, String columna,
+            LocalDateTime desde, LocalDateTime hasta, LocalDateTime cursorFecha, String cursorId) {
+        if (desde != null) {
+            sql.append("AND ").append(columna).append(" >= ? ");
+            params.add(Timestamp.valueOf(desde));
+        }
+        if (hasta != null) {
+            sql.append("AND ").append(columna).append(" < ? ");
+            params.add(Timestamp.valueOf(hasta));
+        }
+        if (cursorFecha != null) {
+            Timestamp fecha = Timestamp.valueOf(cursorFecha);
+            sql.append("AND (").append(columna).append(" < ? OR (").append(columna).append(" = ? AND s.id < ?)) ");
+            params.add(fecha);
+            params.add(fecha);
+            params.add(cursorId);
+        }
+    }
+
+    private List<Servicio> finalizadosPorEstado(PreparedStatement stmt, String estado, List<Object> params)
+            throws SQLException {
+        stmt.setString(1, estado);
+        for (int i = 0; i < params.size(); i++) {
+            stmt.setObject(i + 2, params.get(i));
         }
+
+        List<Servicio> servicios = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                servicios.add(mapRow(rs));
+            }
+        }
+        return servicios;
     }
 
-    private Optional<Servicio> findByIdRaw(String id) {
-        String sql = "SELECT * FROM servicios WHERE id = ?";
+    // Mezcla dos listas ordenadas por (fecha_finalizacion, id) descendente
+    private static List<Servicio> mezclarPorFinalizacion(List<Servicio> a, List<Servicio> b, int maximo) {
+        List<Servicio> resultado = new ArrayList<>(Math.min(maximo, a.size() + b.size()));
+        int i = 0;
+        int j = 0;
+        while (resultado.size() < maximo && (i < a.size() || j < b.size())) {
+            if (j >= b.size() || (i < a.size() && compararFinalizacion(a.get(i), b.get(j)) >= 0)) {
+                resultado.add(a.get(i++));
+            } else {
+                resultado.add(b.get(j++));
+            }
+        }
+        return resultado;
+    }
+
+    private static int compararFinalizacion(Servicio x, Servicio y) {
+        int porFecha = x.getFechaFinalizacion().compareTo(y.getFechaFinalizacion());
+        return porFecha != 0 ? porFecha : x.getId().compareTo(y.getId());
+    }
+
+    public Optional<Servicio> findById(String id) {
         try (Connection conn = dataSource.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
+                PreparedStatement stmt = conn.prepareStatement(SQL_DETALLE)) {
+
             stmt.setString(1, id);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return Optional.of(mapRowToServicio(rs));
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(mapRow(rs));
+                }
             }
             return Optional.empty();
+
         } catch (SQLException e) {
-            throw new RuntimeException("Error al buscar servicio raw", e);
+            throw new RuntimeException("Error al buscar servicio", e);
         }
     }
 
+    /**
+     * Cambia diagnóstico y estado. Si el servicio entra o sale de ENTREGADO se avisa
+     * a los acumulados de ingresos, igual que en finalizarServicio.
+     */
     public void updateDiagnostico(String id, String diagnostico, String estado, LocalDateTime fechaEstimada) {
         String sql = "UPDATE servicios SET diagnostico_tecnico = ?, estado = ?, fecha_estimada_entrega = ? WHERE id = ?";
 
-        try (Connection conn = dataSource.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+                Previo previo = leerPrevios(conn, List.of(id)).get(id);
+
+                stmt.setString(1, diagnostico);
+                stmt.setString(2, estado);
+                stmt.setTimestamp(3, fechaEstimada != null ? Timestamp.valueOf(fechaEstimada) : null);
+                stmt.setString(4, id);
+                stmt.executeUpdate();
+
+                List<Aviso> avisos = new ArrayList<>(1);
+                agregarAviso(avisos, previo, estado);
+                confirmarYAvisar(conn, avisos);
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
 
-            stmt.setString(1, diagnostico);
-            stmt.setString(2, estado);
-            stmt.setTimestamp(3, fechaEstimada != null ? Timestamp.valueOf(fechaEstimada) : null);
-            stmt.setString(4, id);
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al actualizar diagnostico", e);
+        }
+    }
 
-            stmt.executeUpdate();
+    /**
+     * Aplica varias actualizaciones de diagnóstico/estado en una sola transacción
+     * con addBatch (el driver las agrupa gracias a rewriteBatchedStatements).
+     * Si algún id no existe no se aplica ninguna y se lanza IllegalArgumentException.
+     */
+    public void updateDiagnosticoLote(List<Actualizacion> actualizaciones) {
+        String sql = "UPDATE servicios SET diagnostico_tecnico = ?, estado = ?, fecha_estimada_entrega = ? WHERE id = ?";
+
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+                List<String> ids = new ArrayList<>(actualizaciones.size());
+                for (Actualizacion a : actualizaciones) {
+                    ids.add(a.id());
+                }
+                Map<String, Previo> previos = leerPrevios(conn, ids);
+
+                for (Actualizacion a : actualizaciones) {
+                    stmt.setString(1, a.diagnostico());
+                    stmt.setString(2, a.estado());
+                    stmt.setTimestamp(3, a.fechaEstimada() != null ? Timestamp.valueOf(a.fechaEstimada()) : null);
+                    stmt.setString(4, a.id());
+                    stmt.addBatch();
+                }
+
+                int[] actualizados = stmt.executeBatch();
+                List<String> noEncontrados = new ArrayList<>();
+                for (int i = 0; i < actualizados.length; i++) {
+                    if (actualizados[i] == 0) {
+                        noEncontrados.add(actualizaciones.get(i).id());
+                    }
+                }
+                if (!noEncontrados.isEmpty()) {
+                    throw new IllegalArgumentException("Servicios no encontrados: " + String.join(", ", noEncontrados));
+                }
+
+                // Si un id se repite en el lote, cuenta el último estado
+                Map<String, String> estadoFinal = new HashMap<>();
+                for (Actualizacion a : actualizaciones) {
+                    estadoFinal.put(a.id(), a.estado());
+                }
+                List<Aviso> avisos = new ArrayList<>();
+                for (Map.Entry<String, String> e : estadoFinal.entrySet()) {
+                    agregarAviso(avisos, previos.get(e.getKey()), e.getValue());
+                }
+                confirmarYAvisar(conn, avisos);
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
 
         } catch (SQLException e) {
-            throw new RuntimeException("Error al actualizar diagnostico", e);
+            throw new RuntimeException("Error al actualizar servicios en lote", e);
         }
     }
 
@@ -155,17 +575,42 @@ public class ServicioRepository {
             java.math.BigDecimal costo) {
         // Cuando el gerente finaliza el pedido, se marca como ENTREGADO
         // El técnico es quien marca como FINALIZADO cuando termina la reparación
+        // Se lee el estado previo en la misma transacción para que los acumulados de
+        // ingresos (StatsService) puedan aplicar solo la diferencia
+        String sqlPrevio = "SELECT estado, fecha_finalizacion, costo_reparacion FROM servicios WHERE id = ? FOR UPDATE";
         String sql = "UPDATE servicios SET estado = 'ENTREGADO', fecha_finalizacion = ?, fecha_entrega_cliente = ?, costo_reparacion = ? WHERE id = ?";
 
-        try (Connection conn = dataSource.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setTimestamp(1, Timestamp.valueOf(fechaFinalizacion));
-            stmt.setTimestamp(2, fechaEntrega != null ? Timestamp.valueOf(fechaEntrega) : null);
-            stmt.setBigDecimal(3, costo);
-            stmt.setString(4, id);
-
-            stmt.executeUpdate();
+        FinalizacionListener.Entrega anterior = null;
+        int actualizados;
+
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement previo = conn.prepareStatement(sqlPrevio);
+                    PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+                previo.setString(1, id);
+                try (ResultSet rs = previo.executeQuery()) {
+                    if (rs.next() && "ENTREGADO".equals(rs.getString("estado"))) {
+                        Timestamp fechaPrevia = rs.getTimestamp("fecha_finalizacion");
+                        if (fechaPrevia != null) {
+                            anterior = new FinalizacionListener.Entrega(fechaPrevia.toLocalDateTime(),
+                                    rs.getBigDecimal("costo_reparacion"));
+                        }
+                    }
+                }
+
+                stmt.setTimestamp(1, Timestamp.valueOf(fechaFinalizacion));
+                stmt.setTimestamp(2, fechaEntrega != null ? Timestamp.valueOf(fechaEntrega) : null);
+                stmt.setBigDecimal(3, costo);
+                stmt.setString(4, id);
+
+                actualizados = stmt.executeUpdate();
+                confirmarYAvisar(conn, actualizados == 0 ? List.of()
+                        : List.of(new Aviso(anterior, new FinalizacionListener.Entrega(fechaFinalizacion, costo))));
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
 
         } catch (SQLException e) {
             throw new RuntimeException("Error al finalizar servicio", e);
@@ -174,82 +619,111 @@ public class ServicioRepository {
 
     public void delete(String id) {
         String sql = "DELETE FROM servicios WHERE id = ?";
-        try (Connection conn = dataSource.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, id);
-            stmt.executeUpdate();
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                Previo previo = leerPrevios(conn, List.of(id)).get(id);
+                stmt.setString(1, id);
+                stmt.executeUpdate();
+
+                List<Aviso> avisos = new ArrayList<>(1);
+                agregarAviso(avisos, previo, null);
+                confirmarYAvisar(conn, avisos);
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
         } catch (SQLException e) {
             throw new RuntimeException("Error al eliminar servicio", e);
         }
     }
 
-    // Mapper for the VIEW
-    private Servicio mapRowToServicioView(ResultSet rs) throws SQLException {
-        Servicio s = new Servicio();
-        s.setId(rs.getString("servicio_id"));
-        s.setFolioServicio(rs.getInt("folio_servicio"));
-        // View doesn't have raw IDs, but we might not need them for display
-        // If we need them for editing, we might need to adjust the view or fetch them
-        // separately
-
-        s.setNombreCliente(rs.getString("nombre_cliente"));
-        s.setNumeroCelular(rs.getString("numero_celular"));
-        s.setMarca(rs.getString("marca"));
-        s.setModelo(rs.getString("modelo"));
-        s.setTecnicoNombre(rs.getString("tecnico_nombre"));
-
-        // Try to get tecnico_id if available (it won't be in the view, but will be in
-        // our custom query)
-        try {
-            s.setTecnicoId(rs.getString("tecnico_id"));
-        } catch (SQLException e) {
-            // Ignore if column not found (e.g. when called from findById which still uses
-            // the view)
-        }
+    // ---- Avisos a los acumulados de ingresos ----
 
-        s.setProblemaReportado(rs.getString("problema_reportado"));
-        s.setDiagnosticoTecnico(rs.getString("diagnostico_tecnico"));
-        s.setEstado(rs.getString("estado"));
+    // Estado, fecha de finalización y costo antes del cambio
+    private record Previo(String estado, LocalDateTime fechaFinalizacion, java.math.BigDecimal costo) {
+    }
 
-        Timestamp fechaIng = rs.getTimestamp("fecha_ingreso");
-        if (fechaIng != null)
-            s.setFechaIngreso(fechaIng.toLocalDateTime());
+    private record Aviso(FinalizacionListener.Entrega anterior, FinalizacionListener.Entrega actual) {
+    }
 
-        Timestamp fechaEnt = rs.getTimestamp("fecha_entrega_cliente");
-        if (fechaEnt != null)
-            s.setFechaEntregaCliente(fechaEnt.toLocalDateTime());
+    // Bloquea las filas (FOR UPDATE) hasta el commit para que nadie cambie el estado entre la lectura y el UPDATE
+    private static Map<String, Previo> leerPrevios(Connection conn, List<String> ids) throws SQLException {
+        String sql = "SELECT id, estado, fecha_finalizacion, costo_reparacion FROM servicios WHERE id IN ("
+                + String.join(", ", Collections.nCopies(ids.size(), "?")) + ") FOR UPDATE";
+        Map<String, Previo> previos = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < ids.size(); i++) {
+                stmt.setString(i + 1, ids.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    previos.put(rs.getString(1), new Previo(rs.getString(2), toLocalDateTime(rs.getTimestamp(3)),
+                            rs.getBigDecimal(4)));
+                }
+            }
+        }
+        return previos;
+    }
 
-        s.setCostoReparacion(rs.getBigDecimal("costo_reparacion"));
+    // Un servicio cuenta en los acumulados si está ENTREGADO y tiene fecha de finalización
+    private static void agregarAviso(List<Aviso> avisos, Previo previo, String estadoNuevo) {
+        if (previo == null || previo.fechaFinalizacion() == null) {
+            return;
+        }
+        FinalizacionListener.Entrega entrega = new FinalizacionListener.Entrega(previo.fechaFinalizacion(),
+                previo.costo());
+        FinalizacionListener.Entrega anterior = "ENTREGADO".equals(previo.estado()) ? entrega : null;
+        FinalizacionListener.Entrega actual = "ENTREGADO".equals(estadoNuevo) ? entrega : null;
+        if (!Objects.equals(anterior, actual)) {
+            avisos.add(new Aviso(anterior, actual));
+        }
+    }
 
-        return s;
+    // Commit y aviso juntos: una reconciliación no debe ver uno sin el otro
+    private void confirmarYAvisar(Connection conn, List<Aviso> avisos) throws SQLException {
+        FinalizacionListener listener = finalizacionListener;
+        if (listener == null || avisos.isEmpty()) {
+            conn.commit();
+            return;
+        }
+        listener.antesDeConfirmar();
+        try {
+            conn.commit();
+            for (Aviso aviso : avisos) {
+                listener.onFinalizacion(aviso.anterior(), aviso.actual());
+            }
+        } finally {
+            listener.despuesDeConfirmar();
+        }
     }
 
-    // Mapper for the RAW TABLE
-    private Servicio mapRowToServicio(ResultSet rs) throws SQLException {
+    private Servicio mapRow(ResultSet rs) throws SQLException {
         Servicio s = new Servicio();
-        s.setId(rs.getString("id"));
-        s.setFolioServicio(rs.getInt("folio_servicio"));
-        s.setEquipoId(rs.getString("equipo_id"));
-        s.setTecnicoId(rs.getString("tecnico_id"));
-        s.setProblemaReportado(rs.getString("problema_reportado"));
-        s.setFechaIngreso(rs.getTimestamp("fecha_ingreso").toLocalDateTime());
-        s.setDiagnosticoTecnico(rs.getString("diagnostico_tecnico"));
-        s.setEstado(rs.getString("estado"));
-
-        Timestamp fechaEst = rs.getTimestamp("fecha_estimada_entrega");
-        if (fechaEst != null)
-            s.setFechaEstimadaEntrega(fechaEst.toLocalDateTime());
-
-        Timestamp fechaFin = rs.getTimestamp("fecha_finalizacion");
-        if (fechaFin != null)
-            s.setFechaFinalizacion(fechaFin.toLocalDateTime());
-
-        Timestamp fechaEnt = rs.getTimestamp("fecha_entrega_cliente");
-        if (fechaEnt != null)
-            s.setFechaEntregaCliente(fechaEnt.toLocalDateTime());
-
-        s.setCostoReparacion(rs.getBigDecimal("costo_reparacion"));
-
+        s.setId(rs.getString(COL_ID));
+        s.setFolioServicio(rs.getInt(COL_FOLIO));
+        s.setEquipoId(rs.getString(COL_EQUIPO_ID));
+        s.setTecnicoId(rs.getString(COL_TECNICO_ID));
+        s.setProblemaReportado(rs.getString(COL_PROBLEMA));
+        s.setFechaIngreso(toLocalDateTime(rs.getTimestamp(COL_FECHA_INGRESO)));
+        s.setDiagnosticoTecnico(rs.getString(COL_DIAGNOSTICO));
+        s.setEstado(rs.getString(COL_ESTADO));
+        s.setFechaEstimadaEntrega(toLocalDateTime(rs.getTimestamp(COL_FECHA_ESTIMADA)));
+        s.setFechaFinalizacion(toLocalDateTime(rs.getTimestamp(COL_FECHA_FINALIZACION)));
+        s.setFechaEntregaCliente(toLocalDateTime(rs.getTimestamp(COL_FECHA_ENTREGA)));
+        s.setCostoReparacion(rs.getBigDecimal(COL_COSTO));
+
+        s.setNombreCliente(rs.getString(COL_NOMBRE_CLIENTE));
+        s.setNumeroCelular(rs.getString(COL_NUMERO_CELULAR));
+        s.setMarca(rs.getString(COL_MARCA));
+        s.setModelo(rs.getString(COL_MODELO));
+        s.setTecnicoNombre(rs.getString(COL_TECNICO_NOMBRE));
         return s;
     }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
 }
@@ -1,12 +1,17 @@
 package com.electronica.servicio.routes;
 
+import com.electronica.config.JwtConfig;
+import com.electronica.servicio.services.ExportacionService;
 import com.electronica.servicio.services.ServicioService;
 import io.javalin.Javalin;
 
 public class ServicioRoutes {
-    public static void register(Javalin app, ServicioService service) {
+    public static void register(Javalin app, ServicioService service, ExportacionService exportacionService) {
         app.get("/api/servicios", service::getAll);
         app.post("/api/servicios", service::create);
+        // Incluye datos de clientes y costos: requiere token
+        app.before("/api/servicios/exportar", JwtConfig::validateToken);
+        app.get("/api/servicios/exportar", exportacionService::exportar);
         app.put("/api/servicios/{id}/diagnostico", service::updateDiagnostico);
         app.put("/api/servicios/{id}/finalizar", service::finalizar);
     }
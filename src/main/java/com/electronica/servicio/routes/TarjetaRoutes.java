@@ -8,6 +8,8 @@ public class TarjetaRoutes {
         // Map /api/tarjetas to ServicioService methods
         app.get("/api/tarjetas", service::getAll);
         app.post("/api/tarjetas", service::create);
+        // Antes de /{id} para que "lote" no se tome como id
+        app.put("/api/tarjetas/lote", service::updateLote);
         app.get("/api/tarjetas/{id}", service::getById);
         app.put("/api/tarjetas/{id}", service::update);
     }
@@ -0,0 +1,184 @@
+package com.electronica.servicio.services;
+
+import com.electronica.config.Fechas;
+import com.electronica.config.JsonStreaming;
+import com.electronica.servicio.models.EstadoServicio;
+import com.electronica.servicio.repository.ServicioRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.javalin.http.Context;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * GET /api/servicios/exportar
+ * Exporta el historial de servicios (cliente, marca, técnico y costo) como CSV o
+ * NDJSON, escribiendo cada fila en la respuesta conforme llega de MySQL.
+ *
+ * Query params: formato (csv | ndjson, por defecto csv), desde, hasta, estado,
+ * gzip (true para descargar el archivo comprimido).
+ *
+ * Igual que en los listados en streaming, un error a mitad de la exportación solo
+ * puede cortar la respuesta; se registra en el log.
+ */
+public class ExportacionService {
+
+    private static final int BUFFER = 64 * 1024;
+    private static final DateTimeFormatter FECHA = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter ARCHIVO = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+
+    private final ServicioRepository repository;
+
+    public ExportacionService(ServicioRepository repository) {
+        this.repository = repository;
+    }
+
+    public void exportar(Context ctx) {
+        String formato;
+        LocalDateTime desde;
+        LocalDateTime hasta;
+        String estado;
+        try {
+            formato = ctx.queryParam("formato") != null ? ctx.queryParam("formato").toLowerCase(Locale.ROOT) : "csv";
+            if (!formato.equals("csv") && !formato.equals("ndjson")) {
+                throw new IllegalArgumentException("formato debe ser csv o ndjson");
+            }
+            desde = Fechas.parse(ctx.queryParam("desde"));
+            hasta = Fechas.parse(ctx.queryParam("hasta"));
+            estado = ctx.queryParam("estado");
+            if (estado != null && !EstadoServicio.esValido(estado)) {
+                throw new IllegalArgumentException("estado inválido");
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            ctx.status(400).json(Map.of("success", false, "message", "Parámetros inválidos: " + e.getMessage()));
+            return;
+        }
+
+        boolean gzip = "true".equalsIgnoreCase(ctx.queryParam("gzip"));
+        String archivo = "servicios_" + LocalDateTime.now().format(ARCHIVO) + "." + formato + (gzip ? ".gz" : "");
+
+        // application/gzip está excluido de la compresión automática de Javalin
+        ctx.contentType(gzip ? "application/gzip"
+                : formato.equals("csv") ? "text/csv; charset=utf-8" : "application/x-ndjson");
+        ctx.header("Content-Disposition", "attachment; filename=\"" + archivo + "\"");
+
+        long inicio = System.currentTimeMillis();
+        long[] filas = { 0 };
+        try (OutputStream out = gzip ? new GZIPOutputStream(ctx.outputStream(), BUFFER) : ctx.outputStream()) {
+            if (formato.equals("csv")) {
+                escribirCsv(out, desde, hasta, estado, filas);
+            } else {
+                escribirNdjson(out, desde, hasta, estado, filas);
+            }
+            System.out.println("📤 Exportación " + archivo + ": " + filas[0] + " servicios en "
+                    + (System.currentTimeMillis() - inicio) + " ms");
+        } catch (IOException e) {
+            System.err.println("⚠️ Exportación interrumpida tras " + filas[0] + " filas: " + e.getMessage());
+        } catch (Exception e) {
+            // Ya se envió el status 200: solo queda cortar la respuesta
+            System.err.println("❌ Error durante la exportación: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private void escribirCsv(OutputStream out, LocalDateTime desde, LocalDateTime hasta, String estado,
+            long[] filas) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER);
+
+        // BOM para que Excel abra el archivo como UTF-8
+        writer.write('\uFEFF');
+        writer.write(String.join(",", ServicioRepository.COLUMNAS_EXPORTACION));
+        writer.write("\r\n");
+
+        repository.exportar(desde, hasta, estado, valores -> {
+            for (int i = 0; i < valores.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                campoCsv(writer, valores[i]);
+            }
+            writer.write("\r\n");
+            filas[0]++;
+        });
+        writer.flush();
+    }
+
+    private void escribirNdjson(OutputStream out, LocalDateTime desde, LocalDateTime hasta, String estado,
+            long[] filas) throws IOException {
+        String[] columnas = ServicioRepository.COLUMNAS_EXPORTACION;
+
+        try (JsonGenerator gen = JsonStreaming.getMapper().getFactory().createGenerator(out)) {
+            // El stream de salida lo cierra el llamador (gzip necesita escribir su cierre)
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Sin el espacio que Jackson pone entre valores raíz: cada objeto va en su propia línea
+            gen.setRootValueSeparator(null);
+
+            repository.exportar(desde, hasta, estado, valores -> {
+                gen.writeStartObject();
+                for (int i = 0; i < valores.length; i++) {
+                    Object valor = valores[i];
+                    gen.writeFieldName(columnas[i]);
+                    if (valor == null) {
+                        gen.writeNull();
+                    } else if (valor instanceof Integer n) {
+                        gen.writeNumber(n);
+                    } else if (valor instanceof BigDecimal d) {
+                        gen.writeNumber(d);
+                    } else if (valor instanceof LocalDateTime f) {
+                        gen.writeString(f.format(FECHA));
+                    } else {
+                        gen.writeString(valor.toString());
+                    }
+                }
+                gen.writeEndObject();
+                gen.writeRaw('\n');
+                filas[0]++;
+            });
+        }
+    }
+
+    // RFC 4180: entre comillas solo si el valor contiene coma, comillas o salto de línea.
+    // El texto capturado por usuarios que empieza con = + - @ tab o CR se antepone con '
+    // para que Excel no lo ejecute como fórmula (inyección CSV).
+    private static void campoCsv(Writer writer, Object valor) throws IOException {
+        if (valor == null) {
+            return;
+        }
+        String texto;
+        boolean comillas = false;
+        if (valor instanceof LocalDateTime fecha) {
+            texto = fecha.format(FECHA);
+        } else if (valor instanceof BigDecimal decimal) {
+            texto = decimal.toPlainString();
+        } else {
+            texto = valor.toString();
+            if (!texto.isEmpty() && "=+-@\t\r".indexOf(texto.charAt(0)) >= 0) {
+                texto = "'" + texto;
+                comillas = true;
+            }
+        }
+
+        for (int i = 0; i < texto.length() && !comillas; i++) {
+            char c = texto.charAt(i);
+            comillas = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!comillas) {
+            writer.write(texto);
+            return;
+        }
+        writer.write('"');
+        writer.write(texto.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -1,17 +1,27 @@
 package com.electronica.servicio.services;
 
+import com.electronica.config.Fechas;
+import com.electronica.config.JsonStreaming;
 import com.electronica.servicio.models.Servicio;
+import com.electronica.servicio.models.ServicioFiltro;
 import com.electronica.servicio.repository.ServicioRepository;
 import io.javalin.http.Context;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 public class ServicioService {
 
+    // Máximo de servicios por PUT /api/tarjetas/lote (independiente del tamaño de página)
+    public static final int MAX_LOTE = 500;
+
     private final ServicioRepository repository;
 
     public ServicioService(ServicioRepository repository) {
@@ -56,16 +66,60 @@ public class ServicioService {
         }
     }
 
+    /**
+     * GET /api/servicios (y /api/tarjetas)
+     * Query params opcionales: estado, tecnicoId, clienteId, desde, hasta, cursor, limite
+     * Con ?stream=true se envía todo el listado filtrado en streaming, sin paginar.
+     */
     public void getAll(Context ctx) {
         try {
-            ctx.json(Map.of(
-                    "success", true,
-                    "data", repository.findAll()));
+            ServicioFiltro filtro = filtroDesde(ctx);
+
+            if (JsonStreaming.solicitado(ctx)) {
+                JsonStreaming.lista(ctx, gen -> repository.forEachListado(filtro,
+                        servicio -> JsonStreaming.escribir(gen, servicio)));
+                return;
+            }
+
+            List<Servicio> servicios = repository.findPage(filtro);
+
+            String nextCursor = null;
+            if (servicios.size() > filtro.getLimite()) {
+                servicios = servicios.subList(0, filtro.getLimite());
+                nextCursor = ServicioFiltro.codificarCursor(servicios.get(servicios.size() - 1));
+            }
+
+            Map<String, Object> respuesta = new LinkedHashMap<>();
+            respuesta.put("success", true);
+            respuesta.put("data", servicios);
+            respuesta.put("nextCursor", nextCursor);
+            ctx.json(respuesta);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            ctx.status(400).json(Map.of("success", false, "message", "Parámetros inválidos: " + e.getMessage()));
         } catch (Exception e) {
             ctx.status(500).json(Map.of("success", false, "message", "Error al obtener servicios: " + e.getMessage()));
         }
     }
 
+    private ServicioFiltro filtroDesde(Context ctx) {
+        ServicioFiltro filtro = new ServicioFiltro();
+        filtro.setEstado(ctx.queryParam("estado"));
+        filtro.setTecnicoId(ctx.queryParam("tecnicoId"));
+        filtro.setClienteId(ctx.queryParam("clienteId"));
+        filtro.setDesde(Fechas.parse(ctx.queryParam("desde")));
+        filtro.setHasta(Fechas.parse(ctx.queryParam("hasta")));
+
+        String cursor = ctx.queryParam("cursor");
+        if (cursor != null && !cursor.isEmpty()) {
+            filtro.setCursor(cursor);
+        }
+        String limite = ctx.queryParam("limite");
+        if (limite != null) {
+            filtro.setLimite(Integer.parseInt(limite));
+        }
+        return filtro;
+    }
+
     public void getById(Context ctx) {
         try {
             String id = ctx.pathParam("id");
@@ -114,6 +168,67 @@ public class ServicioService {
         }
     }
 
+    /**
+     * PUT /api/tarjetas/lote
+     * Body: [ { id, estado, diagnosticoTecnico, fechaEstimadaEntrega }, ... ]
+     * Todas las tarjetas se actualizan en una sola transacción: si alguna no
+     * existe no se actualiza ninguna.
+     */
+    @SuppressWarnings("unchecked")
+    public void updateLote(Context ctx) {
+        try {
+            Object cuerpo;
+            try {
+                cuerpo = ctx.bodyAsClass(Object.class);
+            } catch (Exception e) {
+                cuerpo = null;
+            }
+            if (!(cuerpo instanceof List<?> lista)) {
+                ctx.status(400).json(Map.of("success", false, "message",
+                        "Se espera un arreglo JSON de servicios"));
+                return;
+            }
+            List<Map<String, Object>> body = (List<Map<String, Object>>) lista;
+
+            if (body.isEmpty() || body.size() > MAX_LOTE) {
+                ctx.status(400).json(Map.of("success", false, "message",
+                        "Se esperan entre 1 y " + MAX_LOTE + " servicios"));
+                return;
+            }
+
+            List<ServicioRepository.Actualizacion> actualizaciones = new ArrayList<>(body.size());
+            for (Map<String, Object> item : body) {
+                String id = (String) item.get("id");
+                String estado = (String) item.get("estado");
+                if (id == null || estado == null) {
+                    ctx.status(400).json(Map.of("success", false, "message",
+                            "Cada servicio requiere id y estado"));
+                    return;
+                }
+
+                String diagnostico = (String) item.getOrDefault("diagnosticoTecnico", "");
+                String fechaEstStr = (String) item.get("fechaEstimadaEntrega");
+                LocalDateTime fechaEst = fechaEstStr != null ? LocalDateTime.parse(fechaEstStr) : null;
+
+                actualizaciones.add(new ServicioRepository.Actualizacion(id, diagnostico, estado, fechaEst));
+            }
+
+            repository.updateDiagnosticoLote(actualizaciones);
+            ctx.json(Map.of(
+                    "success", true,
+                    "message", actualizaciones.size() + " servicios actualizados"));
+
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            ctx.status(400).json(Map.of("success", false, "message", e.getMessage()));
+        } catch (ClassCastException e) {
+            ctx.status(400).json(Map.of("success", false, "message", "Formato de lote inválido"));
+        } catch (Exception e) {
+            e.printStackTrace();
+            ctx.status(500)
+                    .json(Map.of("success", false, "message", "Error al actualizar servicios: " + e.getMessage()));
+        }
+    }
+
     public void updateDiagnostico(Context ctx) {
         try {
             String id = ctx.pathParam("id");
@@ -150,18 +265,44 @@ public class ServicioService {
 
     // --- Métodos para /api/finalizado (Compatibilidad Frontend) ---
 
+    /**
+     * GET /api/finalizado
+     * Query params opcionales: desde, hasta (sobre fecha_finalizacion, o fecha_ingreso
+     * para los FINALIZADO aún sin fecha), cursor, limite
+     * Paginación por cursor como GET /api/servicios. Los FINALIZADO sin fecha
+     * (listos para entregar) van primero.
+     */
     public void getFinalizados(Context ctx) {
         try {
-            // Retorna solo los servicios finalizados
-            // Por ahora retornamos todos y dejamos que el frontend filtre o idealmente
-            // filtramos aquí
-            // Simplificación: reutilizamos findAll pero podríamos filtrar
-            ctx.json(Map.of(
-                    "success", true,
-                    "data", repository.findAll().stream()
-                            .filter(s -> "FINALIZADO".equalsIgnoreCase(s.getEstado())
-                                    || "ENTREGADO".equalsIgnoreCase(s.getEstado()))
-                            .toList()));
+            ServicioFiltro filtro = new ServicioFiltro();
+            filtro.setDesde(Fechas.parse(ctx.queryParam("desde")));
+            filtro.setHasta(Fechas.parse(ctx.queryParam("hasta")));
+
+            String cursor = ctx.queryParam("cursor");
+            if (cursor != null && !cursor.isEmpty()) {
+                filtro.setCursor(cursor);
+            }
+            String limite = ctx.queryParam("limite");
+            if (limite != null) {
+                filtro.setLimite(Integer.parseInt(limite));
+            }
+
+            List<Servicio> servicios = repository.findFinalizados(filtro.getDesde(), filtro.getHasta(),
+                    filtro.getCursorFecha(), filtro.getCursorId(), filtro.isCursorSinFecha(), filtro.getLimite());
+
+            String nextCursor = null;
+            if (servicios.size() > filtro.getLimite()) {
+                servicios = servicios.subList(0, filtro.getLimite());
+                nextCursor = ServicioFiltro.codificarCursorFinalizado(servicios.get(servicios.size() - 1));
+            }
+
+            Map<String, Object> respuesta = new LinkedHashMap<>();
+            respuesta.put("success", true);
+            respuesta.put("data", servicios);
+            respuesta.put("nextCursor", nextCursor);
+            ctx.json(respuesta);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            ctx.status(400).json(Map.of("success", false, "message", "Parámetros inválidos: " + e.getMessage()));
         } catch (Exception e) {
             ctx.status(500)
                     .json(Map.of("success", false, "message", "Error al obtener finalizados: " + e.getMessage()));
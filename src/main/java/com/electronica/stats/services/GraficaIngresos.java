@@ -0,0 +1,163 @@
+package com.electronica.stats.services;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serie de ingresos por intervalo (hora, día, semana, mes o año).
+ *
+ * Toda la serie se obtiene con una sola consulta GROUP BY; los intervalos sin
+ * entregas se rellenan con cero aquí. Si el rango cabe en la ventana de
+ * {@link IngresosRollup} y el intervalo es de un día o más, no se consulta la BD.
+ */
+public class GraficaIngresos {
+
+    public static final int MAX_INTERVALOS = 1000;
+
+    private static final DateTimeFormatter FORMATO_INTERVALO = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    public enum Granularidad {
+        HORA("DATE_FORMAT(fecha_finalizacion, '%Y-%m-%d %H:00:00')"),
+        DIA("DATE_FORMAT(fecha_finalizacion, '%Y-%m-%d 00:00:00')"),
+        SEMANA("DATE_FORMAT(DATE_SUB(DATE(fecha_finalizacion), INTERVAL WEEKDAY(fecha_finalizacion) DAY), '%Y-%m-%d 00:00:00')"),
+        MES("DATE_FORMAT(fecha_finalizacion, '%Y-%m-01 00:00:00')"),
+        ANIO("DATE_FORMAT(fecha_finalizacion, '%Y-01-01 00:00:00')");
+
+        private final String expresionSql;
+
+        Granularidad(String expresionSql) {
+            this.expresionSql = expresionSql;
+        }
+
+        public static Granularidad parse(String valor) {
+            return switch (valor.toLowerCase()) {
+                case "hora", "hour" -> HORA;
+                case "dia", "día", "day" -> DIA;
+                case "semana", "week" -> SEMANA;
+                case "mes", "month" -> MES;
+                case "anio", "año", "year" -> ANIO;
+                default -> throw new IllegalArgumentException("Granularidad no soportada: " + valor);
+            };
+        }
+
+        /** Inicio del intervalo que contiene a la fecha (semanas de lunes a domingo). */
+        LocalDateTime inicioDe(LocalDateTime fecha) {
+            return switch (this) {
+                case HORA -> fecha.truncatedTo(ChronoUnit.HOURS);
+                case DIA -> fecha.toLocalDate().atStartOfDay();
+                case SEMANA -> fecha.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).atStartOfDay();
+                case MES -> fecha.toLocalDate().withDayOfMonth(1).atStartOfDay();
+                case ANIO -> fecha.toLocalDate().withDayOfYear(1).atStartOfDay();
+            };
+        }
+
+        LocalDateTime siguiente(LocalDateTime inicio) {
+            return switch (this) {
+                case HORA -> inicio.plusHours(1);
+                case DIA -> inicio.plusDays(1);
+                case SEMANA -> inicio.plusWeeks(1);
+                case MES -> inicio.plusMonths(1);
+                case ANIO -> inicio.plusYears(1);
+            };
+        }
+    }
+
+    public record Serie(List<LocalDateTime> intervalos, List<BigDecimal> valores) {
+    }
+
+    private final DataSource dataSource;
+    private final IngresosRollup rollup;
+
+    public GraficaIngresos(DataSource dataSource, IngresosRollup rollup) {
+        this.dataSource = dataSource;
+        this.rollup = rollup;
+    }
+
+    /**
+     * Ingresos de los últimos {@code periodos} intervalos, incluyendo el actual.
+     */
+    public Serie ultimos(Granularidad granularidad, int periodos, LocalDateTime ahora) {
+        if (periodos < 1 || periodos > MAX_INTERVALOS) {
+            throw new IllegalArgumentException("periodos debe estar entre 1 y " + MAX_INTERVALOS);
+        }
+
+        List<LocalDateTime> intervalos = new ArrayList<>(periodos + 1);
+        LocalDateTime actual = granularidad.inicioDe(ahora);
+        LocalDateTime inicio = actual;
+        for (int i = 1; i < periodos; i++) {
+            inicio = retroceder(granularidad, inicio);
+        }
+        for (LocalDateTime t = inicio; !t.isAfter(actual); t = granularidad.siguiente(t)) {
+            intervalos.add(t);
+        }
+        LocalDateTime fin = granularidad.siguiente(actual);
+
+        Map<LocalDateTime, BigDecimal> totales = granularidad != Granularidad.HORA
+                && !inicio.toLocalDate().isBefore(rollup.getInicioVentana())
+                        ? desdeRollup(intervalos, granularidad)
+                        : desdeBaseDeDatos(granularidad, inicio, fin);
+
+        List<BigDecimal> valores = new ArrayList<>(intervalos.size());
+        for (LocalDateTime t : intervalos) {
+            valores.add(totales.getOrDefault(t, BigDecimal.ZERO));
+        }
+        return new Serie(intervalos, valores);
+    }
+
+    private Map<LocalDateTime, BigDecimal> desdeRollup(List<LocalDateTime> intervalos, Granularidad granularidad) {
+        Map<LocalDateTime, BigDecimal> totales = new HashMap<>();
+        for (LocalDateTime t : intervalos) {
+            LocalDate desde = t.toLocalDate();
+            LocalDate hasta = granularidad.siguiente(t).toLocalDate();
+            totales.put(t, rollup.total(desde, hasta).ingresos());
+        }
+        return totales;
+    }
+
+    private Map<LocalDateTime, BigDecimal> desdeBaseDeDatos(Granularidad granularidad, LocalDateTime inicio,
+            LocalDateTime fin) {
+        String sql = "SELECT " + granularidad.expresionSql + " AS intervalo, SUM(costo_reparacion) AS ingresos " +
+                "FROM servicios WHERE estado = 'ENTREGADO' AND fecha_finalizacion >= ? AND fecha_finalizacion < ? " +
+                "GROUP BY intervalo";
+
+        Map<LocalDateTime, BigDecimal> totales = new HashMap<>();
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setTimestamp(1, Timestamp.valueOf(inicio));
+            stmt.setTimestamp(2, Timestamp.valueOf(fin));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    BigDecimal val = rs.getBigDecimal("ingresos");
+                    totales.put(LocalDateTime.parse(rs.getString("intervalo"), FORMATO_INTERVALO),
+                            val != null ? val : BigDecimal.ZERO);
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al consultar serie de ingresos", e);
+        }
+        return totales;
+    }
+
+    private static LocalDateTime retroceder(Granularidad granularidad, LocalDateTime inicio) {
+        return switch (granularidad) {
+            case HORA -> inicio.minusHours(1);
+            case DIA -> inicio.minusDays(1);
+            case SEMANA -> inicio.minusWeeks(1);
+            case MES -> inicio.minusMonths(1);
+            case ANIO -> inicio.minusYears(1);
+        };
+    }
+}